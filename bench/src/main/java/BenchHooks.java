@@ -0,0 +1,181 @@
+import javax.swing.BorderFactory;
+import javax.swing.JPanel;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.GridLayout;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongUnaryOperator;
+
+// The app lives in the default package and JMH can't generate code for benchmarks there, so the
+// benchmarks (package musicmood.bench) reach the package-private classes through these hooks.
+// Each hook is looked up once in a @Setup method and returns a function object, so nothing
+// reflective runs inside a measured call.
+public final class BenchHooks {
+
+    private BenchHooks() {}
+
+    // decode the whole file through the mp3spi/tritonus chain; returns the PCM byte count
+    public static Callable<Long> decodeSpi(File file, int bufferBytes) {
+        return () -> drain(Mp3FrameDecoder.spiStream(file), bufferBytes);
+    }
+
+    // decode the whole file with Mp3FrameDecoder (JLayer directly)
+    public static Callable<Long> decodeDirect(File file, int bufferBytes) {
+        return () -> drain(Mp3FrameDecoder.open(file, 0), bufferBytes);
+    }
+
+    // open the file and decode its first buffer, through the mp3spi chain or Mp3FrameDecoder
+    public static Callable<Integer> openFirstBuffer(File file, boolean spi) {
+        byte[] buf = new byte[4096];
+        return () -> {
+            try (InputStream in = spi ? Mp3FrameDecoder.spiStream(file) : Mp3FrameDecoder.open(file, 0)) {
+                return in.read(buf, 0, buf.length);
+            }
+        };
+    }
+
+    // both decoders produce the same samples for the file
+    public static boolean sameOutput(File file) throws Exception {
+        try (InputStream spi = Mp3FrameDecoder.spiStream(file); InputStream direct = Mp3FrameDecoder.open(file, 0)) {
+            return Arrays.equals(spi.readAllBytes(), direct.readAllBytes());
+        }
+    }
+
+    private static long drain(InputStream in, int bufferBytes) throws IOException {
+        byte[] buf = new byte[bufferBytes];
+        long total = 0;
+        int n;
+        try (in) {
+            while ((n = in.read(buf, 0, buf.length)) > 0) total += n;
+        }
+        return total;
+    }
+
+    // the engine's pump loop without the line: read bufferBytes at a time from the track stream
+    // and run it through a DspChain with the volume stage active; dragged moves the volume every
+    // 50 buffers, as a slider being dragged, so the gain ramp runs
+    public static Callable<Long> pump(File file, int bufferBytes, boolean dragged) {
+        return () -> {
+            DspChain dsp = new DspChain();
+            SmoothedGain gain = new SmoothedGain();
+            gain.setVolume(0.8f);
+            dsp.add(gain);
+            byte[] buf = new byte[bufferBytes];
+            long total = 0;
+            int buffers = 0;
+            try (TrackStream stream = TrackStream.open(file)) {
+                int n;
+                while ((n = stream.read(buf, 0, buf.length)) > 0) {
+                    if (dragged && buffers++ % 50 == 0) gain.setVolume((buffers / 50) % 2 == 0 ? 0.3f : 0.9f);
+                    dsp.process(buf, 0, n, stream.format);
+                    total += n;
+                }
+            }
+            return total;
+        };
+    }
+
+    public static long durationMicros(File file) throws Exception {
+        try (TrackStream stream = TrackStream.open(file)) {
+            return stream.durationMicros();
+        }
+    }
+
+    // seek to the given position and decode the first buffer there, as a seek in the player does;
+    // the frame index is scanned once beforehand (as the engine does in the background)
+    public static LongUnaryOperator seeker(File file) throws Exception {
+        Mp3Info info = Mp3Info.read(file);
+        Mp3SeekIndex.scan(file, info);
+        byte[] buf = new byte[4096];
+        return micros -> {
+            try (TrackStream stream = Mp3TrackStream.openAt(file, info, micros)) {
+                return stream.read(buf, 0, buf.length);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        };
+    }
+
+    // a full scan of the file's frame headers, as the engine runs for each track it plays
+    public static Callable<Integer> seekIndexScan(File file) throws Exception {
+        Mp3Info info = Mp3Info.read(file);
+        return () -> {
+            Mp3SeekIndex index = Mp3SeekIndex.scanFrames(file, info);
+            return index == null ? 0 : index.size();
+        };
+    }
+
+    // one library analysis step for the file: its loudness and waveform, or its AudioFeatures
+    public static Callable<Object> analyze(File file, boolean features) {
+        return () -> features ? LibraryAnalyzer.extractFeatures(file) : LibraryAnalyzer.measureLoudness(file, new Waveform.Builder());
+    }
+
+    // what openMood does to list a folder: load the index and get the mood's entries, scanning
+    // the folder if it isn't indexed (the app does that on the scan pool and fills the list in later)
+    public static Callable<Integer> openMood(File root, File indexFile, String mood) {
+        return () -> {
+            LibraryIndex index = LibraryIndex.load(root, indexFile);
+            if (!index.isScanned(mood)) index.scanMood(mood);
+            return index.entriesFor(mood).size();
+        };
+    }
+
+    // a complete, saved index of root, as left behind by a previous run of the app
+    public static void writeIndex(File root, File indexFile) throws IOException {
+        LibraryIndex index = LibraryIndex.load(root, indexFile);
+        index.rescan();
+        index.save();
+    }
+
+    // the now-playing label's truncation, with the app's width cache or measuring every time
+    public static BiFunction<String, Integer, String> ellipsizer(FontMetrics fm, boolean memoize) {
+        Ellipsizer e = new Ellipsizer(memoize ? 32 : 0);
+        return (text, width) -> e.fit(text, fm, width);
+    }
+
+    // one repaint of the mood grid laid out at width x height like the app's, each button's
+    // paintComponent into its own place on a frame-sized image; -Dui.sprites=false paints them live
+    public static Runnable moodGrid(int width, int height) {
+        JPanel grid = new JPanel(new GridLayout(2, 3, 25, 25));
+        grid.setBorder(BorderFactory.createEmptyBorder(40, 80, 40, 80));
+        String[] names = {"Happy", "Sad", "Chill", "Energetic", "Love", "Focus"};
+        Color[] colors = {new Color(255, 230, 90), new Color(90, 120, 255), new Color(90, 240, 210),
+                new Color(255, 120, 90), new Color(255, 80, 160), new Color(130, 220, 150)};
+        MoodButton[] buttons = new MoodButton[names.length];
+        for (int i = 0; i < buttons.length; i++) {
+            buttons[i] = new MoodButton(names[i], colors[i]);
+            buttons[i].setFont(new Font(Font.SANS_SERIF, Font.BOLD, 40));
+            grid.add(buttons[i]);
+        }
+        grid.setSize(width, height);
+        grid.doLayout();
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D[] gs = new Graphics2D[buttons.length];
+        for (int i = 0; i < buttons.length; i++) {
+            gs[i] = frame.createGraphics();
+            gs[i].translate(buttons[i].getX(), buttons[i].getY());
+            gs[i].clipRect(0, 0, buttons[i].getWidth(), buttons[i].getHeight());
+        }
+        return () -> {
+            for (int i = 0; i < buttons.length; i++) buttons[i].paintComponent(gs[i]);
+        };
+    }
+
+    // the song list's search box: the index built once, then one lookup per keystroke
+    public static Function<String, int[]> titleSearch(String[] titles) {
+        TitleSearch search = TitleSearch.build(titles);
+        return search::find;
+    }
+}
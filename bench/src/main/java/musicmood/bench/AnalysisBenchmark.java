@@ -0,0 +1,34 @@
+package musicmood.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+// The library analyzer's per-file work: loudness with the waveform, or the mood features.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalysisBenchmark {
+
+    @Param({""})
+    public String file;
+
+    @Param({"loudness", "features"})
+    public String step;
+
+    private Callable<Object> analyze;
+
+    @Setup
+    public void setup() throws Exception {
+        analyze = Hooks.call("analyze", Hooks.mp3(file), step.equals("features"));
+    }
+
+    @Benchmark
+    public Object analyze() throws Exception {
+        return analyze.call();
+    }
+}
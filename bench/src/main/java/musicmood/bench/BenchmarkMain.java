@@ -0,0 +1,19 @@
+package musicmood.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// JMH's runner with JSON results by default (jmh-result.json), so runs can be compared by tools.
+// Any JMH option can still be given, e.g. "Mp3Decode -rff decode.json" or "-p decoder=direct".
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {}
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) options.addAll(List.of("-rf", "json"));
+        if (!options.contains("-rff")) options.addAll(List.of("-rff", "jmh-result.json"));
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,39 @@
+package musicmood.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+// The engine's read/process loop over a whole track at different buffer sizes
+// (PlaybackEngine uses 4096 bytes, about 23 ms of 44.1 kHz stereo), with the volume steady or
+// being dragged; run with -prof gc to check the loop doesn't allocate.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BufferSizeBenchmark {
+
+    @Param({""})
+    public String file;
+
+    @Param({"1024", "4096", "16384", "65536"})
+    public int bufferBytes;
+
+    @Param({"steady", "dragged"})
+    public String volume;
+
+    private Callable<Long> pump;
+
+    @Setup
+    public void setup() throws Exception {
+        pump = Hooks.call("pump", Hooks.mp3(file), bufferBytes, volume.equals("dragged"));
+    }
+
+    @Benchmark
+    public long pump() throws Exception {
+        return pump.call();
+    }
+}
@@ -0,0 +1,50 @@
+package musicmood.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+// Cost of fitting a track name into the "Now playing" label, for label widths from narrow to wide.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class EllipsizeBenchmark {
+
+    private static final String[] NAMES = {
+            "just friends",
+            "Imagine Dragons - Believer (Official Music Video) [7wtfhZwyrcc]",
+            "Lady Gaga - Always Remember Us This Way (from A Star Is Born) (Official Music Video) [5vheNbQlsyU]",
+            "Ólafur Arnalds - saman (Official Video)",
+    };
+
+    @Param({"150", "300", "600"})
+    public int width;
+
+    // false: every prefix width is measured again, as on a cache miss
+    @Param({"true", "false"})
+    public boolean memoize;
+
+    private BiFunction<String, Integer, String> ellipsize;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        FontMetrics fm = g.getFontMetrics(new Font(Font.SANS_SERIF, Font.PLAIN, 16));
+        ellipsize = Hooks.call("ellipsizer", fm, memoize);
+    }
+
+    @Benchmark
+    public String ellipsize() {
+        String name = NAMES[next++ & 3];
+        return ellipsize.apply(name, width);
+    }
+}
@@ -0,0 +1,40 @@
+package musicmood.bench;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+// Calls into the default-package BenchHooks (see there), for @Setup methods only.
+final class Hooks {
+
+    private Hooks() {}
+
+    @SuppressWarnings("unchecked")
+    static <T> T call(String name, Object... args) throws Exception {
+        Class<?> hooks = Class.forName("BenchHooks");
+        for (Method m : hooks.getMethods()) {
+            if (m.getName().equals(name) && m.getParameterCount() == args.length) {
+                try {
+                    return (T) m.invoke(null, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause() instanceof Exception e ? e : ex;
+                }
+            }
+        }
+        throw new NoSuchMethodException("BenchHooks." + name);
+    }
+
+    // the given file, or the first MP3 under -Dbench.music (default: the app's music/ folder)
+    static File mp3(String path) throws Exception {
+        if (!path.isEmpty()) return new File(path);
+        Path root = Path.of(System.getProperty("bench.music", "music"));
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(p -> p.toString().toLowerCase().endsWith(".mp3")).sorted().findFirst()
+                    .orElseThrow(() -> new IllegalStateException("no MP3 under " + root.toAbsolutePath()))
+                    .toFile();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package musicmood.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of repainting the 2x3 mood grid at full screen (the area under the title at 1920x1080),
+// from sprites or painted live; the sprite switch is read once at class load, so each mode gets
+// its own fork. Run with -prof gc to see the garbage per repaint.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MoodGridPaintBenchmark {
+
+    private Runnable paint;
+
+    @Setup
+    public void setup() throws Exception {
+        paint = Hooks.call("moodGrid", 1920, 930);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+    public void sprites() {
+        paint.run();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Dui.sprites=false"})
+    public void live() {
+        paint.run();
+    }
+}
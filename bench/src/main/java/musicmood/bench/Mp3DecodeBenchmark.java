@@ -0,0 +1,48 @@
+package musicmood.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+// MP3 decode, the mp3spi/tritonus chain against JLayer driven directly: a whole file, and
+// opening a file up to its first buffer (what a track start waits for). Setup checks that the
+// two decoders agree on the file's samples.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Mp3DecodeBenchmark {
+
+    @Param({""})
+    public String file;
+
+    @Param({"spi", "direct"})
+    public String decoder;
+
+    private Callable<Long> decode;
+    private Callable<Integer> openFirstBuffer;
+
+    @Setup
+    public void setup() throws Exception {
+        File mp3 = Hooks.mp3(file);
+        if (decoder.equals("direct") && !(Boolean) Hooks.call("sameOutput", mp3))
+            throw new IllegalStateException("Mp3FrameDecoder output differs from mp3spi for " + mp3);
+        decode = Hooks.call(decoder.equals("spi") ? "decodeSpi" : "decodeDirect", mp3, 4096);
+        openFirstBuffer = Hooks.call("openFirstBuffer", mp3, decoder.equals("spi"));
+    }
+
+    @Benchmark
+    public long decode() throws Exception {
+        return decode.call();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int openFirstBuffer() throws Exception {
+        return openFirstBuffer.call();
+    }
+}
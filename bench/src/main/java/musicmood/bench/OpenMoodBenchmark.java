@@ -0,0 +1,75 @@
+package musicmood.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Opening a mood folder of the given size: "cold" has no library index yet (every file is
+// probed), "indexed" starts from the index a previous run saved. The library is generated:
+// short WAV files in artist subfolders, 20 tracks each.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenMoodBenchmark {
+
+    private static final String MOOD = "happy";
+
+    @Param({"100", "1000", "5000"})
+    public int files;
+
+    @Param({"cold", "indexed"})
+    public String index;
+
+    private Path dir;
+    private Callable<Integer> openMood;
+
+    @Setup
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("music-mood-bench");
+        File root = dir.resolve("music").toFile();
+        byte[] wav = wav();
+        for (int i = 0; i < files; i++) {
+            Path artist = root.toPath().resolve(MOOD).resolve("artist " + i / 20);
+            Files.createDirectories(artist);
+            Files.write(artist.resolve("track " + i + ".wav"), wav);
+        }
+        File indexFile = dir.resolve("library.idx").toFile();
+        if (index.equals("indexed")) Hooks.call("writeIndex", root, indexFile);
+        openMood = Hooks.call("openMood", root, indexFile, MOOD);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) Files.delete(p);
+        }
+    }
+
+    @Benchmark
+    public int openMood() throws Exception {
+        return openMood.call();
+    }
+
+    // 10 ms of 44.1 kHz stereo 16-bit silence
+    private static byte[] wav() {
+        int dataBytes = 441 * 4;
+        ByteBuffer b = ByteBuffer.allocate(44 + dataBytes).order(ByteOrder.LITTLE_ENDIAN);
+        b.put("RIFF".getBytes()).putInt(36 + dataBytes).put("WAVE".getBytes());
+        b.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) 2)
+                .putInt(44100).putInt(44100 * 4).putShort((short) 4).putShort((short) 16);
+        b.put("data".getBytes()).putInt(dataBytes);
+        return b.array();
+    }
+}
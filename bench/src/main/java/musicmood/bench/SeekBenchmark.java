@@ -0,0 +1,39 @@
+package musicmood.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongUnaryOperator;
+
+// Latency from a seek request to the first decoded buffer, by position in the file.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeekBenchmark {
+
+    @Param({""})
+    public String file;
+
+    @Param({"0.0", "0.25", "0.5", "0.75", "0.95"})
+    public double position;
+
+    private LongUnaryOperator seek;
+    private long micros;
+
+    @Setup
+    public void setup() throws Exception {
+        File mp3 = Hooks.mp3(file);
+        seek = Hooks.call("seeker", mp3);
+        long duration = Hooks.call("durationMicros", mp3);
+        micros = (long) (duration * position);
+    }
+
+    @Benchmark
+    public long seek() {
+        return seek.applyAsLong(micros);
+    }
+}
@@ -0,0 +1,32 @@
+package musicmood.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+// Building an MP3's seek index from scratch: one pass over its frame headers, without the
+// on-disk cache. SeekBenchmark times the seeks that use it.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeekIndexBenchmark {
+
+    @Param({""})
+    public String file;
+
+    private Callable<Integer> scan;
+
+    @Setup
+    public void setup() throws Exception {
+        scan = Hooks.call("seekIndexScan", Hooks.mp3(file));
+    }
+
+    @Benchmark
+    public int scan() throws Exception {
+        return scan.call();
+    }
+}
@@ -0,0 +1,62 @@
+package musicmood.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Cost of one keystroke in the song list's search box, for moods of 1000 to 100000 songs named
+// "Artist - Title (Official Video)" from a vocabulary of made-up words. The queries are what
+// the box holds while "love song" is typed, short prefixes matching the most rows.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TitleSearchBenchmark {
+
+    private static final String[] QUERIES = {"l", "lo", "lov", "love", "love s", "love so", "love son", "love song"};
+
+    @Param({"1000", "10000", "100000"})
+    public int songs;
+
+    private Function<String, int[]> search;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        Random random = new Random(42);
+        String[] vocabulary = new String[5000];
+        for (int i = 0; i < vocabulary.length; i++) vocabulary[i] = word(random);
+        vocabulary[0] = "love";
+        vocabulary[1] = "song";
+        String[] titles = new String[songs];
+        for (int i = 0; i < songs; i++) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(pick(vocabulary, random)).append(' ').append(pick(vocabulary, random)).append(" - ");
+            int words = 1 + random.nextInt(5);
+            for (int w = 0; w < words; w++) sb.append(pick(vocabulary, random)).append(' ');
+            titles[i] = sb.append("(Official Video)").toString();
+        }
+        search = Hooks.call("titleSearch", (Object) titles);
+    }
+
+    // Zipf-like: a few words are in many titles
+    private static String pick(String[] vocabulary, Random random) {
+        return vocabulary[(int) (vocabulary.length * Math.pow(random.nextDouble(), 3))];
+    }
+
+    private static String word(Random random) {
+        char[] c = new char[3 + random.nextInt(6)];
+        for (int i = 0; i < c.length; i++) c[i] = (char) ('a' + random.nextInt(26));
+        c[0] = Character.toUpperCase(c[0]);
+        return new String(c);
+    }
+
+    @Benchmark
+    public int[] keystroke() {
+        return search.apply(QUERIES[next++ & 7]);
+    }
+}
@@ -0,0 +1,117 @@
+import javax.swing.JComponent;
+import javax.swing.Timer;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
+import java.util.List;
+
+// One pulse for every UI animation: a single Swing timer ticking at the display's refresh rate
+// while at least one animation runs, and stopped when none does. An animation is a Value moving
+// towards a target at a fixed speed, computed from the time since it started rather than in
+// fixed steps per tick, so timer jitter doesn't change how fast it goes. A tick updates every
+// running value and then requests the repaints, which the RepaintManager merges into one paint
+// pass. Each busy period is timed with FrameStats (-Danimation.stats=true); missed frames are
+// also counted over the whole run and printed with it. EDT only.
+final class Animator {
+
+    // a float animated towards a target; repaints its component whenever it changes
+    static final class Value {
+        private final JComponent component;
+        private float value, from, to, perSecond;
+        private long startNanos;
+        private Runnable then;
+        private boolean running;
+
+        Value(JComponent component, float initial) {
+            this.component = component;
+            this.value = initial;
+        }
+
+        float get() {
+            return value;
+        }
+
+        boolean isRunning() {
+            return running;
+        }
+
+        // jumps to v, cancelling a running animation
+        void set(float v) {
+            running = false;
+            then = null;
+            value = v;
+        }
+
+        void animateTo(float target, float perSecond) {
+            animateTo(target, perSecond, null);
+        }
+
+        // from the current value, at perSecond units a second; then runs once the target is reached
+        // (not if the animation is replaced or cancelled first)
+        void animateTo(float target, float perSecond, Runnable then) {
+            from = value;
+            to = target;
+            this.perSecond = perSecond;
+            this.then = then;
+            startNanos = System.nanoTime();
+            running = true;
+            INSTANCE.start(this);
+        }
+
+        // true when finished
+        private boolean step(long now) {
+            float moved = perSecond * (now - startNanos) / 1e9f;
+            float distance = Math.abs(to - from);
+            value = moved >= distance ? to : from + Math.signum(to - from) * moved;
+            if (component != null) component.repaint();
+            return value == to;
+        }
+    }
+
+    private static final Animator INSTANCE = new Animator();
+
+    private final List<Value> active = new ArrayList<>();
+    private final List<Runnable> finished = new ArrayList<>();
+    private final Timer pulse;
+    private final GraphicsConfiguration screen;
+    private FrameStats stats;
+    private int missedTotal; // by all animations since startup
+
+    private Animator() {
+        screen = GraphicsEnvironment.isHeadless() ? null
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        pulse = new Timer(1000 / FrameStats.refreshRate(screen), e -> tick());
+    }
+
+    private void start(Value v) {
+        if (!active.contains(v)) active.add(v);
+        if (!pulse.isRunning()) {
+            stats = new FrameStats("animations", screen);
+            pulse.start();
+        }
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        for (int i = active.size() - 1; i >= 0; i--) {
+            Value v = active.get(i);
+            if (v.running && !v.step(now)) continue;
+            if (v.running) {
+                v.running = false;
+                if (v.then != null) finished.add(v.then);
+                v.then = null;
+            }
+            active.remove(i);
+        }
+        stats.frame(now, System.nanoTime());
+        // may start new animations, which join the next tick
+        for (Runnable r : finished) r.run();
+        finished.clear();
+        if (active.isEmpty()) {
+            pulse.stop();
+            missedTotal += stats.missed();
+            stats.report();
+            if (FrameStats.ENABLED) System.out.println("animations: " + missedTotal + " missed since startup");
+        }
+    }
+}
@@ -0,0 +1,205 @@
+import java.io.File;
+
+// Tempo, level, timbre and key of one track, the inputs of MoodClassifier. Extracted from up to
+// a minute taken from the middle of the track (intros and fade-outs say little about its mood),
+// downmixed to mono and decimated to about 11 kHz, with a 2048-point FFT every 512 samples.
+// flux is the average share of spectral magnitude that is new from one frame to the next;
+// modeStrength is how much better the best major key fits than the best minor key (> 0: major).
+record AudioFeatures(float tempoBpm, float rmsDb, float centroidHz, float flux, int key, boolean major,
+                     float modeStrength) {
+
+    static final AudioFeatures UNREADABLE = new AudioFeatures(Float.NaN, Float.NaN, Float.NaN, Float.NaN, -1, false, Float.NaN);
+
+    private static final long EXCERPT_MICROS = 60_000_000L;
+    private static final int ANALYSIS_RATE = 11025;
+    private static final int FRAME = 2048, HOP = 512;
+    private static final float MIN_BPM = 50, MAX_BPM = 200, PREFERRED_BPM = 120;
+
+    private static final String[] NOTES = {"C", "C#", "D", "D#", "E", "F", "F#", "G", "G#", "A", "A#", "B"};
+    // Krumhansl-Kessler key profiles, tonic first
+    private static final double[] MAJOR_PROFILE = {6.35, 2.23, 3.48, 2.33, 4.38, 4.09, 2.52, 5.19, 2.39, 3.66, 2.29, 2.88};
+    private static final double[] MINOR_PROFILE = {6.33, 2.68, 3.52, 5.38, 2.60, 3.53, 2.54, 4.75, 3.98, 2.69, 3.34, 3.17};
+
+    boolean isValid() {
+        return Float.isFinite(tempoBpm);
+    }
+
+    String keyName() {
+        return key < 0 ? "?" : NOTES[key] + (major ? " major" : " minor");
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.0f BPM, %.1f dBFS, centroid %.0f Hz, flux %.3f, %s (%+.2f)",
+                tempoBpm, rmsDb, centroidHz, flux, keyName(), modeStrength);
+    }
+
+    // decodes the excerpt and analyzes it; throws if the file can't be decoded
+    static AudioFeatures extract(File file) throws Exception {
+        TrackStream first = TrackStream.open(file);
+        TrackStream stream = first;
+        try {
+            long duration = first.durationMicros();
+            if (duration > EXCERPT_MICROS) stream = first.seekTo((duration - EXCERPT_MICROS) / 2);
+            return analyze(stream);
+        } finally {
+            if (stream != first) stream.close();
+            first.close();
+        }
+    }
+
+    private static AudioFeatures analyze(TrackStream stream) throws Exception {
+        int channels = stream.format.getChannels(), frameSize = stream.format.getFrameSize();
+        float rate = stream.format.getSampleRate();
+        int decimation = Math.max(1, Math.round(rate / ANALYSIS_RATE));
+        float analysisRate = rate / decimation;
+        long maxFrames = (long) (EXCERPT_MICROS / 1e6 * rate);
+
+        // mono signal at the analysis rate (box-filtered), and the level of the full-rate signal
+        float[] signal = new float[(int) (maxFrames / decimation) + 1];
+        int length = 0;
+        double sumSquares = 0;
+        long frames = 0;
+        float acc = 0;
+        int accCount = 0;
+        byte[] buf = new byte[64 * 1024 / frameSize * frameSize];
+        float[] samples = new float[buf.length / frameSize * channels];
+        int pending = 0, n;
+        read:
+        while ((n = stream.read(buf, pending, buf.length - pending)) > 0) {
+            pending += n;
+            int whole = pending / frameSize * frameSize;
+            if (DspChain.toFloats(buf, 0, whole, stream.format, samples) < 0) throw new IllegalArgumentException("unsupported format");
+            for (int i = 0, count = whole / frameSize; i < count; i++) {
+                float mono = 0;
+                for (int c = 0; c < channels; c++) mono += samples[i * channels + c];
+                mono /= channels;
+                sumSquares += mono * mono;
+                acc += mono;
+                if (++accCount == decimation) {
+                    signal[length++] = acc / decimation;
+                    acc = 0;
+                    accCount = 0;
+                }
+                if (++frames >= maxFrames) break read;
+            }
+            pending -= whole;
+            System.arraycopy(buf, whole, buf, 0, pending);
+        }
+        if (length < FRAME) throw new IllegalArgumentException("too short to analyze");
+
+        Fft fft = new Fft(FRAME);
+        float[] window = fft.hann();
+        float[] re = new float[FRAME], im = new float[FRAME];
+        int bins = FRAME / 2;
+        float binHz = analysisRate / FRAME;
+        float[] mag = new float[bins], prev = new float[bins];
+        // pitch class of each bin within A1..A6; -1 outside (too coarse below, mostly overtones above)
+        int[] pitchClass = new int[bins];
+        for (int k = 0; k < bins; k++) {
+            double hz = k * binHz;
+            pitchClass[k] = hz < 55 || hz > 1760 ? -1 : Math.floorMod((int) Math.round(12 * Math.log(hz / 440) / Math.log(2)) + 9, 12);
+        }
+        double[] chroma = new double[12];
+        int frameCount = (length - FRAME) / HOP + 1;
+        float[] onset = new float[frameCount];
+        double centroidSum = 0, fluxSum = 0;
+        int voiced = 0;
+        for (int f = 0; f < frameCount; f++) {
+            int start = f * HOP;
+            for (int i = 0; i < FRAME; i++) {
+                re[i] = signal[start + i] * window[i];
+                im[i] = 0;
+            }
+            fft.transform(re, im);
+            double total = 0, weighted = 0, rise = 0;
+            for (int k = 1; k < bins; k++) {
+                float m = (float) Math.sqrt(re[k] * re[k] + im[k] * im[k]);
+                mag[k] = m;
+                total += m;
+                weighted += m * k * binHz;
+                if (m > prev[k]) rise += m - prev[k];
+                if (pitchClass[k] >= 0) chroma[pitchClass[k]] += m;
+            }
+            onset[f] = (float) rise;
+            if (total > 1e-3) {
+                centroidSum += weighted / total;
+                fluxSum += rise / total;
+                voiced++;
+            }
+            float[] t = prev;
+            prev = mag;
+            mag = t;
+        }
+
+        float rmsDb = (float) (10 * Math.log10(Math.max(sumSquares / Math.max(1, frames), 1e-10)));
+        float centroid = voiced > 0 ? (float) (centroidSum / voiced) : 0;
+        float flux = voiced > 0 ? (float) (fluxSum / voiced) : 0;
+        float tempo = tempo(onset, analysisRate / HOP);
+
+        double bestMajor = -2, bestMinor = -2;
+        int majorKey = 0, minorKey = 0;
+        for (int tonic = 0; tonic < 12; tonic++) {
+            double maj = correlation(chroma, MAJOR_PROFILE, tonic), min = correlation(chroma, MINOR_PROFILE, tonic);
+            if (maj > bestMajor) { bestMajor = maj; majorKey = tonic; }
+            if (min > bestMinor) { bestMinor = min; minorKey = tonic; }
+        }
+        boolean major = bestMajor >= bestMinor;
+        return new AudioFeatures(tempo, rmsDb, centroid, flux, major ? majorKey : minorKey, major, (float) (bestMajor - bestMinor));
+    }
+
+    // strongest periodicity of the onset envelope, from its autocorrelation; lags are weighted
+    // towards PREFERRED_BPM on a log scale so half and double tempo lose against the beat itself
+    private static float tempo(float[] onset, float envelopeRate) {
+        int n = onset.length;
+        double mean = 0;
+        for (float v : onset) mean += v;
+        mean /= n;
+        float[] x = new float[n];
+        for (int i = 0; i < n; i++) x[i] = (float) (onset[i] - mean);
+        int minLag = Math.max(1, (int) Math.floor(envelopeRate * 60 / MAX_BPM));
+        int maxLag = Math.min(n - 1, (int) Math.ceil(envelopeRate * 60 / MIN_BPM));
+        if (maxLag <= minLag + 1) return 0;
+        double[] ac = new double[maxLag + 2];
+        for (int lag = minLag - 1; lag <= maxLag + 1 && lag < n; lag++) {
+            double s = 0;
+            for (int i = lag; i < n; i++) s += x[i] * x[i - lag];
+            ac[lag] = s / (n - lag);
+        }
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int lag = minLag; lag <= maxLag; lag++) {
+            double octaves = Math.log(envelopeRate * 60 / lag / PREFERRED_BPM) / Math.log(2);
+            double score = ac[lag] * Math.exp(-0.5 * octaves * octaves);
+            if (score > bestScore) {
+                bestScore = score;
+                best = lag;
+            }
+        }
+        if (best < 0 || ac[best] <= 0) return 0;
+        // parabolic interpolation between integer lags
+        double a = ac[best - 1], b = ac[best], c = best + 1 < ac.length ? ac[best + 1] : b;
+        double denom = a - 2 * b + c;
+        double lag = best + (denom != 0 ? 0.5 * (a - c) / denom : 0);
+        return (float) (envelopeRate * 60 / lag);
+    }
+
+    // Pearson correlation of the chroma vector with a key profile rotated to the given tonic
+    private static double correlation(double[] chroma, double[] profile, int tonic) {
+        double mc = 0, mp = 0;
+        for (int i = 0; i < 12; i++) {
+            mc += chroma[i];
+            mp += profile[i];
+        }
+        mc /= 12;
+        mp /= 12;
+        double num = 0, dc = 0, dp = 0;
+        for (int i = 0; i < 12; i++) {
+            double c = chroma[(i + tonic) % 12] - mc, p = profile[i] - mp;
+            num += c * p;
+            dc += c * c;
+            dp += p * p;
+        }
+        return dc == 0 ? 0 : num / Math.sqrt(dc * dp);
+    }
+}
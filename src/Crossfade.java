@@ -0,0 +1,74 @@
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.util.Arrays;
+
+// The outgoing half of a crossfade. Every buffer of the incoming track is mixed with the same
+// number of frames read from the outgoing one, on equal-power curves (sin in, cos out), so
+// the overall loudness doesn't dip in the middle the way it does with linear ramps.
+// The read buffer and both float arrays are allocated once, whatever the fade length.
+// Engine thread only.
+class Crossfade {
+
+    private final byte[] other;
+    private final float[] in, out;
+    private TrackStream outgoing;
+    private float outgoingGain;     // outgoing level relative to the incoming track's normalization
+    private long frame, frames;
+
+    Crossfade(int bufferBytes) {
+        other = new byte[bufferBytes];
+        in = new float[bufferBytes];  // enough for any sample size down to 8 bits
+        out = new float[bufferBytes];
+    }
+
+    boolean isActive() {
+        return outgoing != null;
+    }
+
+    // fade outgoing (now owned by the crossfade) out over the next frames of whatever mix() is given
+    void start(TrackStream outgoing, long frames, float outgoingGain) {
+        close();
+        this.outgoing = outgoing;
+        this.frames = Math.max(1, frames);
+        this.outgoingGain = outgoingGain;
+        frame = 0;
+    }
+
+    // where the incoming track's curve is now: 1 when no fade is running. A fade that starts
+    // during another one picks up its outgoing curve from here, so the level doesn't jump.
+    float incomingLevel() {
+        if (!isActive()) return 1f;
+        return (float) Math.sin(Math.min(1.0, (double) frame / frames) * Math.PI / 2);
+    }
+
+    // mix len bytes of the incoming track in buf with the outgoing track, in place. The fade
+    // ends when it has run its length or the outgoing track runs out.
+    void mix(byte[] buf, int len, AudioFormat format) throws IOException {
+        int got = 0, r;
+        while (got < len && (r = outgoing.read(other, got, len - got)) > 0) got += r;
+        int channels = format.getChannels(), frameSize = format.getFrameSize();
+        int n = DspChain.toFloats(buf, 0, len, format, in);
+        if (n < 0) {
+            close(); // a format the mixer can't unpack: cut instead
+            return;
+        }
+        int m = DspChain.toFloats(other, 0, got / frameSize * frameSize, format, out);
+        Arrays.fill(out, m, n, 0f);
+        int i = 0;
+        for (int f = 0, count = n / channels; f < count; f++) {
+            double t = Math.min(1.0, (double) (frame + f) / frames) * Math.PI / 2;
+            float gin = (float) Math.sin(t), gout = (float) Math.cos(t) * outgoingGain;
+            for (int c = 0; c < channels; c++, i++) in[i] = in[i] * gin + out[i] * gout;
+        }
+        frame += n / channels;
+        DspChain.toBytes(in, n, format, buf, 0);
+        if (frame >= frames || got < len) close();
+    }
+
+    void close() {
+        if (outgoing != null) {
+            outgoing.close();
+            outgoing = null;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+
+import javax.sound.sampled.AudioFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Software processing between the decoder and SourceDataLine.write. Each buffer is unpacked
+// into one reusable float array, run through the processors in order and packed back into
+// the same byte array, so nothing is allocated once the first buffer has been seen.
+// Processors can be added or removed from any thread; they run on the engine thread.
+class DspChain {
+
+    interface Processor {
+        // interleaved samples in -1..1, frames * channels values; modify in place
+        void process(float[] samples, int frames, int channels, float sampleRate);
+
+        // true when process() would leave the samples unchanged, so the chain can skip the conversion
+        default boolean isBypassed() {
+            return false;
+        }
+
+        // a new stream starts: forget any history (filters, smoothing)
+        default void reset() {}
+    }
+
+    private final List<Processor> processors = new CopyOnWriteArrayList<>();
+    private float[] work = new float[0];
+
+    void add(Processor p) {
+        processors.add(p);
+    }
+
+    // runs before the processors already in the chain
+    void addFirst(Processor p) {
+        processors.add(0, p);
+    }
+
+    void remove(Processor p) {
+        processors.remove(p);
+    }
+
+    void reset() {
+        for (Processor p : processors) p.reset();
+    }
+
+    // process len bytes of PCM in buf in place; formats it can't unpack pass through untouched
+    void process(byte[] buf, int off, int len, AudioFormat format) {
+        boolean active = false;
+        for (Processor p : processors) {
+            if (!p.isBypassed()) {
+                active = true;
+                break;
+            }
+        }
+        if (!active || format.isBigEndian() && format.getSampleSizeInBits() > 8) return;
+
+        int bytesPerSample = format.getSampleSizeInBits() / 8;
+        AudioFormat.Encoding enc = format.getEncoding();
+        int kind = kind(enc, bytesPerSample);
+        if (kind < 0) return;
+
+        int channels = format.getChannels();
+        int frames = len / format.getFrameSize();
+        int n = frames * channels;
+        if (work.length < n) work = new float[n];
+        unpack(buf, off, n, kind, work);
+        for (Processor p : processors) {
+            if (!p.isBypassed()) p.process(work, frames, channels, format.getSampleRate());
+        }
+        pack(work, n, kind, buf, off);
+    }
+
+    // unpack len bytes of PCM into out (interleaved, -1..1); the number of samples, or -1 for unsupported formats
+    static int toFloats(byte[] buf, int off, int len, AudioFormat format, float[] out) {
+        if (format.isBigEndian() && format.getSampleSizeInBits() > 8) return -1;
+        int kind = kind(format.getEncoding(), format.getSampleSizeInBits() / 8);
+        if (kind < 0) return -1;
+        int n = len / format.getFrameSize() * format.getChannels();
+        unpack(buf, off, n, kind, out);
+        return n;
+    }
+
+    // inverse of toFloats: pack n samples back into buf, clipping to full scale
+    static void toBytes(float[] in, int n, AudioFormat format, byte[] buf, int off) {
+        pack(in, n, kind(format.getEncoding(), format.getSampleSizeInBits() / 8), buf, off);
+    }
+
+    private static final int U8 = 0, S16 = 1, S24 = 2, S32 = 3, F32 = 4;
+
+    private static int kind(AudioFormat.Encoding enc, int bytesPerSample) {
+        if (enc == AudioFormat.Encoding.PCM_UNSIGNED && bytesPerSample == 1) return U8;
+        if (enc == AudioFormat.Encoding.PCM_SIGNED) {
+            switch (bytesPerSample) {
+                case 2: return S16;
+                case 3: return S24;
+                case 4: return S32;
+            }
+        }
+        if (enc == AudioFormat.Encoding.PCM_FLOAT && bytesPerSample == 4) return F32;
+        return -1;
+    }
+
+    private static void unpack(byte[] b, int off, int n, int kind, float[] out) {
+        int p = off;
+        switch (kind) {
+            case U8 -> {
+                for (int i = 0; i < n; i++) out[i] = ((b[p++] & 0xFF) - 128) / 128f;
+            }
+            case S16 -> {
+                for (int i = 0; i < n; i++, p += 2) out[i] = (short) ((b[p + 1] << 8) | (b[p] & 0xFF)) / 32768f;
+            }
+            case S24 -> {
+                for (int i = 0; i < n; i++, p += 3) {
+                    out[i] = ((b[p + 2] << 16) | ((b[p + 1] & 0xFF) << 8) | (b[p] & 0xFF)) / 8388608f;
+                }
+            }
+            case S32 -> {
+                for (int i = 0; i < n; i++, p += 4) out[i] = readInt(b, p) / 2147483648f;
+            }
+            case F32 -> {
+                for (int i = 0; i < n; i++, p += 4) out[i] = Float.intBitsToFloat(readInt(b, p));
+            }
+        }
+    }
+
+    private static void pack(float[] in, int n, int kind, byte[] b, int off) {
+        int p = off;
+        switch (kind) {
+            case U8 -> {
+                for (int i = 0; i < n; i++) b[p++] = (byte) (clamp(Math.round(in[i] * 128f), -128, 127) + 128);
+            }
+            case S16 -> {
+                for (int i = 0; i < n; i++, p += 2) {
+                    int v = clamp(Math.round(in[i] * 32768f), -32768, 32767);
+                    b[p] = (byte) v;
+                    b[p + 1] = (byte) (v >> 8);
+                }
+            }
+            case S24 -> {
+                for (int i = 0; i < n; i++, p += 3) {
+                    int v = clamp(Math.round(in[i] * 8388608f), -8388608, 8388607);
+                    b[p] = (byte) v;
+                    b[p + 1] = (byte) (v >> 8);
+                    b[p + 2] = (byte) (v >> 16);
+                }
+            }
+            case S32 -> {
+                for (int i = 0; i < n; i++, p += 4) {
+                    writeInt(b, p, (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, (double) in[i] * 2147483648.0)));
+                }
+            }
+            case F32 -> {
+                for (int i = 0; i < n; i++, p += 4) writeInt(b, p, Float.floatToRawIntBits(in[i]));
+            }
+        }
+    }
+
+    private static int clamp(int v, int min, int max) {
+        return v < min ? min : (v > max ? max : v);
+    }
+
+    private static int readInt(byte[] b, int p) {
+        return (b[p] & 0xFF) | ((b[p + 1] & 0xFF) << 8) | ((b[p + 2] & 0xFF) << 16) | (b[p + 3] << 24);
+    }
+
+    private static void writeInt(byte[] b, int p, int v) {
+        b[p] = (byte) v;
+        b[p + 1] = (byte) (v >> 8);
+        b[p + 2] = (byte) (v >> 16);
+        b[p + 3] = (byte) (v >> 24);
+    }
+}
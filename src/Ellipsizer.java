@@ -0,0 +1,64 @@
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.font.FontRenderContext;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Cuts text to fit a width, with "..." appended. The prefix length is found by binary search,
+// and each prefix width is measured at most once per font and text: the widths of the last
+// few texts are kept, so re-fitting the playing title on every resize is mostly array lookups.
+// EDT only.
+class Ellipsizer {
+
+    private static final String ELLIPSIS = "...";
+
+    private record Key(Font font, FontRenderContext frc, String text) {}
+
+    private final int maxTexts;
+    // prefix length -> stringWidth, -1 where not measured yet
+    private final Map<Key, int[]> widths;
+
+    // remembers the prefix widths of up to maxTexts texts; 0 measures every time
+    Ellipsizer(int maxTexts) {
+        this.maxTexts = maxTexts;
+        this.widths = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+                return size() > Ellipsizer.this.maxTexts;
+            }
+        };
+    }
+
+    // text cut to fit maxWidth with "..." appended, or unchanged if it already fits
+    String fit(String text, FontMetrics fm, int maxWidth) {
+        int[] w = widthsOf(text, fm);
+        int n = text.length();
+        if (width(w, text, n, fm) <= maxWidth) return text;
+        int baseWidth = maxWidth - fm.stringWidth(ELLIPSIS);
+        // longest prefix within baseWidth; the whole text is known not to fit
+        int lo = 0, hi = n - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (width(w, text, mid, fm) <= baseWidth) lo = mid;
+            else hi = mid - 1;
+        }
+        return text.substring(0, Math.max(1, lo)) + ELLIPSIS;
+    }
+
+    private int[] widthsOf(String text, FontMetrics fm) {
+        Key key = new Key(fm.getFont(), fm.getFontRenderContext(), text);
+        int[] w = maxTexts > 0 ? widths.get(key) : null;
+        if (w == null) {
+            w = new int[text.length() + 1];
+            Arrays.fill(w, 1, w.length, -1);
+            if (maxTexts > 0) widths.put(key, w);
+        }
+        return w;
+    }
+
+    private static int width(int[] w, String text, int chars, FontMetrics fm) {
+        if (w[chars] < 0) w[chars] = fm.stringWidth(text.substring(0, chars));
+        return w[chars];
+    }
+}
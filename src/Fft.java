@@ -0,0 +1,54 @@
+// In-place radix-2 FFT of one fixed size. Twiddle factors and the bit-reversal permutation
+// are computed once in the constructor, so transforms allocate nothing.
+class Fft {
+
+    final int size;
+    private final float[] cos, sin;
+    private final int[] reversed;
+
+    Fft(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) throw new IllegalArgumentException("size must be a power of two: " + size);
+        this.size = size;
+        cos = new float[size / 2];
+        sin = new float[size / 2];
+        for (int i = 0; i < size / 2; i++) {
+            cos[i] = (float) Math.cos(-2 * Math.PI * i / size);
+            sin[i] = (float) Math.sin(-2 * Math.PI * i / size);
+        }
+        reversed = new int[size];
+        int bits = Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; i++) reversed[i] = Integer.reverse(i) >>> (32 - bits);
+    }
+
+    // forward transform of size values; re and im are replaced by the spectrum
+    void transform(float[] re, float[] im) {
+        for (int i = 0; i < size; i++) {
+            int j = reversed[i];
+            if (j > i) {
+                float t = re[i]; re[i] = re[j]; re[j] = t;
+                t = im[i]; im[i] = im[j]; im[j] = t;
+            }
+        }
+        for (int len = 2; len <= size; len <<= 1) {
+            int half = len >> 1, step = size / len;
+            for (int start = 0; start < size; start += len) {
+                for (int k = 0, w = 0; k < half; k++, w += step) {
+                    int a = start + k, b = a + half;
+                    float tr = re[b] * cos[w] - im[b] * sin[w];
+                    float ti = re[b] * sin[w] + im[b] * cos[w];
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+
+    // Hann window coefficients for a frame of this size
+    float[] hann() {
+        float[] w = new float[size];
+        for (int i = 0; i < size; i++) w[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / size));
+        return w;
+    }
+}
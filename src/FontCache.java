@@ -0,0 +1,27 @@
+import java.awt.Font;
+import java.util.HashMap;
+import java.util.Map;
+
+// Fonts derived from one base font, by style and size. Sizes are rounded to half a point (the
+// size bucket), so resizing the window asks for a handful of distinct fonts instead of deriving
+// a new one on every event, and an unchanged bucket gives the same instance - setFont() with it
+// is a no-op. EDT only.
+class FontCache {
+
+    private final Font base;
+    private final Map<Integer, Font> derived = new HashMap<>();
+
+    FontCache(Font base) {
+        this.base = base != null ? base : new Font("SansSerif", Font.PLAIN, 20);
+    }
+
+    Font get(int style, float size) {
+        int halfPoints = Math.round(size * 2);
+        return derived.computeIfAbsent(halfPoints * 4 + style, k -> base.deriveFont(style, halfPoints / 2f));
+    }
+
+    // the size get() actually returns a font for
+    static float bucket(float size) {
+        return Math.round(size * 2) / 2f;
+    }
+}
@@ -0,0 +1,61 @@
+import java.awt.DisplayMode;
+import java.awt.GraphicsConfiguration;
+
+// Frame times of one animation: how long each frame took (to paint it, or to compute it) and how
+// far apart the frames were, against the display's refresh interval. A gap of more than 1.5
+// refresh intervals is a missed frame. Printed when the animation ends if run with -Danimation.stats=true.
+class FrameStats {
+
+    static final boolean ENABLED = Boolean.getBoolean("animation.stats");
+
+    private final String name;
+    private final int refreshHz;
+    private final long budgetNanos;
+    private long first, last;
+    private int frames, late;
+    private long paintTotal, paintMax, gapMax;
+
+    FrameStats(String name, GraphicsConfiguration gc) {
+        this.name = name;
+        this.refreshHz = refreshRate(gc);
+        this.budgetNanos = 1_000_000_000L / refreshHz;
+    }
+
+    // the display's refresh rate, 60 if it doesn't say
+    static int refreshRate(GraphicsConfiguration gc) {
+        int hz = gc != null ? gc.getDevice().getDisplayMode().getRefreshRate() : DisplayMode.REFRESH_RATE_UNKNOWN;
+        return hz > 0 ? hz : 60;
+    }
+
+    // one frame painted between these nanoTimes
+    void frame(long paintStart, long paintEnd) {
+        if (frames == 0) first = paintStart;
+        else {
+            long gap = paintStart - last;
+            gapMax = Math.max(gapMax, gap);
+            if (gap > budgetNanos * 3 / 2) late++;
+        }
+        last = paintStart;
+        frames++;
+        long paint = paintEnd - paintStart;
+        paintTotal += paint;
+        paintMax = Math.max(paintMax, paint);
+    }
+
+    int missed() {
+        return late;
+    }
+
+    String summary() {
+        double span = (last - first) / 1e6;
+        double fps = span > 0 ? (frames - 1) * 1000 / span : 0;
+        return String.format("%s: %d frames in %.0f ms (%.0f fps, display %d Hz), %.2f ms avg / %.2f ms max per frame, "
+                        + "longest gap %.1f ms, %d missed",
+                name, frames, span, fps, refreshHz, paintTotal / 1e6 / Math.max(1, frames), paintMax / 1e6,
+                gapMax / 1e6, late);
+    }
+
+    void report() {
+        if (ENABLED && frames > 0) System.out.println(summary());
+    }
+}
@@ -0,0 +1,85 @@
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BaseMultiResolutionImage;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// The control button icons. Each PNG is decoded once; each (icon, size, screen scale) asked for
+// is scaled once and kept, so resizing the window or toggling play/pause only looks up a map.
+// On a HiDPI screen a variant also carries the device-pixel image, so the icon stays sharp
+// at 150%/200%. At most MAX_VARIANTS are kept, least recently used dropped first. Not thread
+// safe: filled on a startup thread, then used on the EDT only.
+class IconCache {
+
+    // 6 icons at every size the layout uses (20..32 px), at two screen scales
+    private static final int MAX_VARIANTS = 160;
+
+    private final Map<String, BufferedImage> sources = new HashMap<>();
+    private final Map<String, ImageIcon> variants = new LinkedHashMap<>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ImageIcon> eldest) {
+            return size() > MAX_VARIANTS;
+        }
+    };
+
+    // decodes the given files from dir; missing or unreadable ones are reported and skipped
+    IconCache(String dir, String... names) {
+        for (String name : names) {
+            File f = new File(dir + name);
+            if (!f.exists()) {
+                System.out.println("Missing icon: " + f.getPath());
+                continue;
+            }
+            try {
+                BufferedImage img = ImageIO.read(f);
+                if (img != null) sources.put(name, img);
+            } catch (IOException ex) {
+                System.out.println("Cannot read icon " + f.getPath() + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    // the icon at size x size logical pixels for a screen with the given scale, or null if the
+    // file was missing
+    ImageIcon get(String name, int size, double scale) {
+        String key = name + '@' + size + 'x' + scale;
+        ImageIcon icon = variants.get(key);
+        if (icon != null) return icon;
+        BufferedImage src = sources.get(name);
+        if (src == null) return null;
+        BufferedImage base = scaled(src, size);
+        int device = (int) Math.round(size * scale);
+        Image image = device > size ? new BaseMultiResolutionImage(base, scaled(src, device)) : base;
+        icon = new ImageIcon(image);
+        variants.put(key, icon);
+        return icon;
+    }
+
+    // Halves the size with bilinear filtering until within 2x of the target, then one last step:
+    // as smooth as SCALE_SMOOTH's area averaging for icons, at a fraction of the cost.
+    // Premultiplied alpha keeps the antialiased edges from darkening.
+    static BufferedImage scaled(BufferedImage src, int size) {
+        BufferedImage img = src;
+        int w = src.getWidth(), h = src.getHeight();
+        do {
+            w = Math.max(size, w / 2);
+            h = Math.max(size, h / 2);
+            if (w < size * 2 && h < size * 2) w = h = size;
+            BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(img, 0, 0, w, h, null);
+            g.dispose();
+            img = next;
+        } while (w != size || h != size);
+        return img;
+    }
+}
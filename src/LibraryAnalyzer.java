@@ -0,0 +1,158 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Measures every library entry that isn't analyzed yet (new or changed files): loudness for
+// normalization, AudioFeatures for MoodClassifier and the waveform for the progress slider.
+// Loudness and waveform come from the same full decode. Results are stored on the entry (and
+// in the WaveformStore), so they are saved with the library and a rerun only decodes what changed. Decoding runs on
+// its own small ForkJoinPool of minimum-priority daemon threads - at most half the cores - so
+// a first run over a big library never competes with the engine thread for the CPU.
+class LibraryAnalyzer {
+
+    private static final int SAVE_EVERY = 25;      // tracks between index saves while a run is in progress
+
+    static final LibraryIndex.Loudness UNREADABLE = new LibraryIndex.Loudness(Float.NaN, Float.NaN);
+
+    private final LibraryIndex library;
+    private final WaveformStore waveforms;
+    private final ForkJoinPool pool;
+    private final AtomicInteger sinceSave = new AtomicInteger();
+    private boolean running, again;
+
+    LibraryAnalyzer(LibraryIndex library, WaveformStore waveforms) {
+        this.library = library;
+        this.waveforms = waveforms;
+        int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threads = new AtomicInteger();
+        this.pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("library-analysis-" + threads.incrementAndGet());
+            t.setPriority(Thread.MIN_PRIORITY);
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+
+    // analyze everything still unmeasured; a request during a run starts another pass when it ends
+    void analyzeInBackground() {
+        synchronized (this) {
+            if (running) {
+                again = true;
+                return;
+            }
+            running = true;
+        }
+        pool.execute(this::run);
+    }
+
+    // analyze everything still unmeasured and wait for it (command-line tools)
+    void analyze() {
+        pool.invoke(ForkJoinTask.adapt(this::analyzeOnce));
+        library.save();
+    }
+
+    private void run() {
+        while (true) {
+            if (analyzeOnce()) library.save();
+            synchronized (this) {
+                if (!again) {
+                    running = false;
+                    return;
+                }
+                again = false;
+            }
+        }
+    }
+
+    // true if anything was analyzed
+    private boolean analyzeOnce() {
+        List<LibraryIndex.Entry> todo = new ArrayList<>();
+        for (LibraryIndex.Entry e : library.allEntries()) {
+            if (e.loudness == null || e.features == null || needsWaveform(e)) todo.add(e);
+        }
+        if (todo.isEmpty()) return false;
+        new Batch(todo, 0, todo.size()).invoke();
+        sinceSave.set(0);
+        return true;
+    }
+
+    // a file that couldn't be decoded has no waveform either; it's retried once it changes (a new entry)
+    private boolean needsWaveform(LibraryIndex.Entry e) {
+        return !UNREADABLE.equals(e.loudness) && !waveforms.has(e.file);
+    }
+
+    private class Batch extends RecursiveAction {
+        final List<LibraryIndex.Entry> entries;
+        final int from, to;
+
+        Batch(List<LibraryIndex.Entry> entries, int from, int to) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Batch(entries, from, mid), new Batch(entries, mid, to));
+                return;
+            }
+            LibraryIndex.Entry e = entries.get(from);
+            boolean needWaveform = needsWaveform(e);
+            if (e.loudness == null || needWaveform) {
+                Waveform.Builder waveform = needWaveform ? new Waveform.Builder() : null;
+                LibraryIndex.Loudness l = measureLoudness(e.file, waveform);
+                if (e.loudness == null) e.loudness = l;
+                if (waveform != null && l != UNREADABLE) waveforms.save(e.file, waveform.build());
+            }
+            if (e.features == null) e.features = extractFeatures(e.file);
+            if (sinceSave.incrementAndGet() >= SAVE_EVERY) {
+                sinceSave.set(0);
+                library.save();
+            }
+        }
+    }
+
+    // decode the whole track; NaN values if it can't be read, so it isn't retried until the file changes
+    // waveform (if not null) is fed the same samples
+    static LibraryIndex.Loudness measureLoudness(File file, Waveform.Builder waveform) {
+        try (TrackStream stream = TrackStream.open(file)) {
+            LoudnessMeter meter = new LoudnessMeter(stream.format.getChannels(), stream.format.getSampleRate());
+            if (waveform != null) waveform.start(stream.format.getChannels(), stream.format.getSampleRate());
+            int frameSize = stream.format.getFrameSize();
+            byte[] buf = new byte[64 * 1024 / frameSize * frameSize];
+            float[] samples = new float[buf.length / frameSize * stream.format.getChannels()];
+            int pending = 0, n;
+            while ((n = stream.read(buf, pending, buf.length - pending)) > 0) {
+                pending += n;
+                int whole = pending / frameSize * frameSize;
+                if (DspChain.toFloats(buf, 0, whole, stream.format, samples) < 0) return UNREADABLE;
+                meter.add(samples, whole / frameSize);
+                if (waveform != null) waveform.add(samples, whole / frameSize);
+                pending -= whole;
+                System.arraycopy(buf, whole, buf, 0, pending);
+            }
+            return new LibraryIndex.Loudness((float) meter.integratedLufs(), (float) meter.truePeakDb());
+        } catch (Exception ex) {
+            System.out.println("Cannot analyze " + file.getName() + ": " + ex.getMessage());
+            return UNREADABLE;
+        }
+    }
+
+    // like measureLoudness, UNREADABLE rather than retried
+    static AudioFeatures extractFeatures(File file) {
+        try {
+            return AudioFeatures.extract(file);
+        } catch (Exception ex) {
+            System.out.println("Cannot extract features of " + file.getName() + ": " + ex.getMessage());
+            return AudioFeatures.UNREADABLE;
+        }
+    }
+}
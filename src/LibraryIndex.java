@@ -0,0 +1,491 @@
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// On-disk index of every audio file under music/ with the metadata playback needs
+// (size, mtime, duration, byte length, format, tags). Loaded with a single read at startup;
+// a rescan only lists folders whose mtime changed, stats every known file, and only probes
+// files whose size or mtime changed. Mood folders and their artist/album subfolders are
+// scanned in parallel.
+class LibraryIndex {
+
+    private static final int MAGIC = 0x4D4D4C49; // "MMLI"
+    private static final int VERSION = 3;
+
+    // order of entriesFor(): case-insensitive path, exact path to break ties
+    static final Comparator<String> PATH_ORDER =
+            String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    // result of LibraryAnalyzer; travels with the entry, so a changed file is measured again
+    record Loudness(float integratedLufs, float truePeakDb) {}
+
+    static final class Entry {
+        final String path;          // relative to the music root, '/' separated
+        final String mood;          // first path segment
+        final File file;
+        final long size;
+        final long modified;
+        final long durationMicros;  // -1 if unknown
+        final long byteLength;
+        final String format;
+        final String title, artist, album;
+        volatile Loudness loudness; // null until analyzed
+        volatile AudioFeatures features;
+
+        Entry(File root, String path, long size, long modified, long durationMicros, long byteLength,
+              String format, String title, String artist, String album) {
+            this.path = path;
+            int slash = path.indexOf('/');
+            this.mood = slash > 0 ? path.substring(0, slash) : "";
+            this.file = new File(root, path);
+            this.size = size;
+            this.modified = modified;
+            this.durationMicros = durationMicros;
+            this.byteLength = byteLength;
+            this.format = format;
+            this.title = title;
+            this.artist = artist;
+            this.album = album;
+        }
+
+        // file name without extension, as shown in the song list
+        String displayName() {
+            String name = file.getName();
+            int dotIndex = name.lastIndexOf('.');
+            return (dotIndex > 0) ? name.substring(0, dotIndex) : name;
+        }
+    }
+
+    private final File root;
+    private final File indexFile;
+    // sorted by path, so a folder's entries are one key range
+    private final ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Long> dirModified = new ConcurrentSkipListMap<>();
+    private final Set<String> scannedMoods = ConcurrentHashMap.newKeySet();
+    private final Set<String> scanningMoods = ConcurrentHashMap.newKeySet();
+    private volatile Map<String, List<Entry>> byMood = Map.of();
+    private final ForkJoinPool scanPool = new ForkJoinPool(
+            Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors())));
+
+    private LibraryIndex(File root, File indexFile) {
+        this.root = root;
+        this.indexFile = indexFile;
+    }
+
+    static LibraryIndex load(File root, File indexFile) {
+        LibraryIndex index = new LibraryIndex(root, indexFile);
+        if (indexFile.exists()) {
+            try {
+                index.read(Files.readAllBytes(indexFile.toPath()));
+            } catch (Exception ex) {
+                System.out.println("Library index unreadable, rebuilding: " + ex.getMessage());
+                index.entries.clear();
+                index.dirModified.clear();
+            }
+        }
+        index.rebuildMoods();
+        return index;
+    }
+
+    // entries under music/<mood>, sorted by path, as indexed so far
+    List<Entry> entriesFor(String mood) {
+        List<Entry> list = byMood.get(mood);
+        return list != null ? list : List.of();
+    }
+
+    // same, but a folder that was never indexed is scanned on the scan pool; listener hears
+    // about the mood (on a pool thread) once its entries are in
+    List<Entry> entriesFor(String mood, MusicFolderWatcher.Listener listener) {
+        List<Entry> list = byMood.get(mood);
+        if (list == null && !scannedMoods.contains(mood) && scanningMoods.add(mood)) {
+            scanPool.execute(() -> {
+                try {
+                    scanMood(mood);
+                } finally {
+                    scanningMoods.remove(mood);
+                }
+                listener.libraryChanged(Set.of(mood));
+            });
+        }
+        return list != null ? list : List.of();
+    }
+
+    // false until the mood's folder has been scanned once (by a rescan or scanMood)
+    boolean isScanned(String mood) {
+        return scannedMoods.contains(mood);
+    }
+
+    boolean hasMood(String mood) {
+        return dirModified.containsKey(mood) || byMood.containsKey(mood);
+    }
+
+    Entry get(File file) {
+        return entries.get(relativePath(file.toPath()));
+    }
+
+    Set<String> moods() {
+        return byMood.keySet();
+    }
+
+    Collection<Entry> allEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    // ===== scanning =====
+
+    void rescanInBackground() {
+        rescanInBackground(null);
+    }
+
+    // then (if not null) runs on the scan thread once the index is up to date
+    void rescanInBackground(Runnable then) {
+        Thread t = new Thread(() -> {
+            try {
+                rescan();
+            } catch (Exception ex) {
+                System.out.println("Library scan failed: " + ex.getMessage());
+            }
+            if (then != null) then.run();
+        }, "library-scan-thread");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+    }
+
+    void rescan() throws IOException {
+        List<DirScan> moods = new ArrayList<>();
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        if (root.isDirectory()) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(root.toPath(), Files::isDirectory)) {
+                for (Path dir : stream) moods.add(new DirScan(dir, seen));
+            }
+        }
+        scanPool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(moods);
+            }
+        });
+        boolean changed = retainSeen(seen, "");
+        for (DirScan scan : moods) {
+            scannedMoods.add(relativePath(scan.dir));
+            changed |= scan.changed;
+        }
+        rebuildMoods();
+        if (changed) save();
+    }
+
+    // synchronous scan of a single mood folder, for a mood needed before the first rescan
+    void scanMood(String mood) {
+        Path dir = new File(root, mood).toPath();
+        if (!Files.isDirectory(dir)) {
+            scannedMoods.add(mood);
+            return;
+        }
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        DirScan scan = new DirScan(dir, seen);
+        scanPool.invoke(scan);
+        retainSeen(seen, mood + "/");
+        scannedMoods.add(mood);
+        rebuildMoods();
+    }
+
+    // re-index just the given paths (created, deleted, renamed or modified files and folders).
+    // Returns the moods whose song list changed.
+    Set<String> applyChanges(Collection<Path> paths) {
+        Set<String> moods = new HashSet<>();
+        for (Path path : paths) {
+            String rel = relativePath(path);
+            if (rel.isEmpty() || rel.startsWith("..")) continue;
+            int slash = rel.indexOf('/');
+            String mood = slash > 0 ? rel.substring(0, slash) : rel;
+            boolean changed;
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                if (attrs.isDirectory()) {
+                    Set<String> seen = ConcurrentHashMap.newKeySet();
+                    DirScan scan = new DirScan(path, seen);
+                    scanPool.invoke(scan);
+                    changed = retainSeen(seen, rel + "/") | scan.changed;
+                } else if (slash > 0 && isAudioFile(rel)) {
+                    changed = indexFile(path, attrs, null);
+                } else {
+                    continue;
+                }
+            } catch (IOException gone) {
+                // deleted (or renamed away): drop the file, or everything under the folder
+                changed = entries.remove(rel) != null;
+                changed |= retainSeen(Set.of(), rel + "/");
+                changed |= dirModified.remove(rel) != null;
+            }
+            if (changed) moods.add(mood);
+        }
+        if (!moods.isEmpty()) {
+            rebuildMoods();
+            save();
+        }
+        return moods;
+    }
+
+    // drop entries and folders under prefix that the scan didn't see
+    private boolean retainSeen(Set<String> seen, String prefix) {
+        boolean changed = entries.subMap(prefix, prefix + '\uffff').keySet().removeIf(p -> !seen.contains(p));
+        changed |= dirModified.keySet().removeIf(p -> (p + "/").startsWith(prefix) && !seen.contains(p));
+        return changed;
+    }
+
+    // one folder; subfolders are forked so nested artist/album trees are walked in parallel
+    private class DirScan extends RecursiveAction {
+        final Path dir;
+        final Set<String> seen;
+        boolean changed;
+
+        DirScan(Path dir, Set<String> seen) {
+            this.dir = dir;
+            this.seen = seen;
+        }
+
+        @Override
+        protected void compute() {
+            String rel = relativePath(dir);
+            seen.add(rel);
+            List<DirScan> subdirs = new ArrayList<>();
+            try {
+                long mtime = Files.getLastModifiedTime(dir).toMillis();
+                Long known = dirModified.get(rel);
+                if (known != null && known == mtime) {
+                    // listing unchanged: no new or removed names, but a file edited in place (retagged,
+                    // re-encoded) keeps its name, so the folder's known files are still stat'ed and re-probed
+                    // if changed
+                    String prefix = rel + "/";
+                    for (String p : children(entries, prefix)) {
+                        try {
+                            Path file = dir.resolve(p.substring(prefix.length()));
+                            changed |= indexFile(file, Files.readAttributes(file, BasicFileAttributes.class), seen);
+                        } catch (IOException | InvalidPathException gone) {
+                            // not marked seen: dropped with the folder's other missing files
+                        }
+                    }
+                    for (String d : children(dirModified, prefix)) {
+                        subdirs.add(new DirScan(dir.resolve(d.substring(prefix.length())), seen));
+                    }
+                } else {
+                    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                        for (Path child : stream) {
+                            BasicFileAttributes attrs = Files.readAttributes(child, BasicFileAttributes.class);
+                            if (attrs.isDirectory()) {
+                                subdirs.add(new DirScan(child, seen));
+                            } else if (isAudioFile(child.getFileName().toString())) {
+                                changed |= indexFile(child, attrs, seen);
+                            }
+                        }
+                    }
+                    dirModified.put(rel, mtime);
+                    changed = true;
+                }
+            } catch (IOException ex) {
+                System.out.println("Cannot scan " + dir + ": " + ex.getMessage());
+            }
+            invokeAll(subdirs);
+            for (DirScan sub : subdirs) changed |= sub.changed;
+        }
+    }
+
+    // keys directly under the folder prefix ("mood/artist/"), jumping over each subfolder's range
+    private static List<String> children(NavigableMap<String, ?> map, String prefix) {
+        List<String> keys = new ArrayList<>();
+        String p = map.ceilingKey(prefix);
+        while (p != null && p.startsWith(prefix)) {
+            int slash = p.indexOf('/', prefix.length());
+            if (slash < 0) {
+                keys.add(p);
+                p = map.higherKey(p);
+            } else {
+                p = map.ceilingKey(p.substring(0, slash + 1) + '\uffff');
+            }
+        }
+        return keys;
+    }
+
+    // probe the file unless the indexed entry has the same size and mtime; true if it changed
+    private boolean indexFile(Path file, BasicFileAttributes attrs, Set<String> seen) {
+        String rel = relativePath(file);
+        if (seen != null) seen.add(rel);
+        long size = attrs.size();
+        long mtime = attrs.lastModifiedTime().toMillis();
+        Entry old = entries.get(rel);
+        if (old != null && old.size == size && old.modified == mtime) return false;
+        entries.put(rel, probe(rel, file.toFile(), size, mtime));
+        return true;
+    }
+
+    private Entry probe(String rel, File file, long size, long mtime) {
+        long duration = -1, byteLength = size;
+        String format = "", title = null, artist = null, album = null;
+        try {
+            AudioFileFormat aff = AudioSystem.getAudioFileFormat(file);
+            Map<String, Object> props = aff.properties();
+            if (aff.getByteLength() > 0) byteLength = aff.getByteLength();
+            format = aff.getType() + " " + aff.getFormat().getEncoding() + " "
+                    + (int) aff.getFormat().getSampleRate() + " Hz " + aff.getFormat().getChannels() + " ch";
+            if (props.get("duration") instanceof Long d) duration = d;
+            else if (aff.getFrameLength() > 0) {
+                duration = (long) (aff.getFrameLength() / aff.getFormat().getFrameRate() * 1_000_000L);
+            }
+            title = tag(props, "title");
+            artist = tag(props, "author");
+            album = tag(props, "album");
+        } catch (Exception ignored) {}
+        if (rel.toLowerCase().endsWith(".mp3")) {
+            // LAME tag duration is exact (encoder delay/padding removed), prefer it
+            try {
+                Mp3Info info = Mp3Info.read(file);
+                if (info.durationMicros() > 0) duration = info.durationMicros();
+            } catch (IOException ignored) {}
+        }
+        return new Entry(root, rel, size, mtime, duration, byteLength, format, title, artist, album);
+    }
+
+    private static String tag(Map<String, Object> props, String key) {
+        Object v = props.get(key);
+        return v instanceof String s && !s.isBlank() ? s.trim() : null;
+    }
+
+    static boolean isAudioFile(String name) {
+        String ln = name.toLowerCase();
+        return ln.endsWith(".wav") || ln.endsWith(".mp3");
+    }
+
+    private String relativePath(Path p) {
+        Path rel = root.toPath().toAbsolutePath().normalize().relativize(p.toAbsolutePath().normalize());
+        return rel.toString().replace(File.separatorChar, '/');
+    }
+
+    private synchronized void rebuildMoods() {
+        Map<String, List<Entry>> moods = new HashMap<>();
+        for (Entry e : entries.values()) {
+            if (!e.mood.isEmpty()) moods.computeIfAbsent(e.mood, k -> new ArrayList<>()).add(e);
+        }
+        for (Map.Entry<String, List<Entry>> m : moods.entrySet()) {
+            m.getValue().sort(Comparator.comparing((Entry e) -> e.path, PATH_ORDER));
+            m.setValue(Collections.unmodifiableList(m.getValue()));
+        }
+        for (String dir : dirModified.keySet()) {
+            if (dir.indexOf('/') < 0) moods.putIfAbsent(dir, List.of());
+        }
+        byMood = moods;
+    }
+
+    // ===== persistence =====
+
+    private void read(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("unknown index format");
+        int dirs = in.readInt();
+        for (int i = 0; i < dirs; i++) {
+            String path = in.readUTF();
+            dirModified.put(path, in.readLong());
+            if (path.indexOf('/') < 0) scannedMoods.add(path);
+        }
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String path = in.readUTF();
+            Entry e = new Entry(root, path, in.readLong(), in.readLong(), in.readLong(), in.readLong(),
+                    in.readUTF(), readOptional(in), readOptional(in), readOptional(in));
+            if (in.readBoolean()) e.loudness = new Loudness(in.readFloat(), in.readFloat());
+            if (in.readBoolean()) {
+                e.features = new AudioFeatures(in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat(),
+                        in.readByte(), in.readBoolean(), in.readFloat());
+            }
+            entries.put(path, e);
+        }
+    }
+
+    synchronized void save() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + entries.size() * 160);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            Map<String, Long> dirs = new HashMap<>(dirModified);
+            out.writeInt(dirs.size());
+            for (Map.Entry<String, Long> d : dirs.entrySet()) {
+                out.writeUTF(d.getKey());
+                out.writeLong(d.getValue());
+            }
+            List<Entry> all = new ArrayList<>(entries.values());
+            out.writeInt(all.size());
+            for (Entry e : all) {
+                out.writeUTF(e.path);
+                out.writeLong(e.size);
+                out.writeLong(e.modified);
+                out.writeLong(e.durationMicros);
+                out.writeLong(e.byteLength);
+                out.writeUTF(e.format);
+                writeOptional(out, e.title);
+                writeOptional(out, e.artist);
+                writeOptional(out, e.album);
+                Loudness l = e.loudness;
+                out.writeBoolean(l != null);
+                if (l != null) {
+                    out.writeFloat(l.integratedLufs());
+                    out.writeFloat(l.truePeakDb());
+                }
+                AudioFeatures f = e.features;
+                out.writeBoolean(f != null);
+                if (f != null) {
+                    out.writeFloat(f.tempoBpm());
+                    out.writeFloat(f.rmsDb());
+                    out.writeFloat(f.centroidHz());
+                    out.writeFloat(f.flux());
+                    out.writeByte(f.key());
+                    out.writeBoolean(f.major());
+                    out.writeFloat(f.modeStrength());
+                }
+            }
+            out.flush();
+
+            File dir = indexFile.getAbsoluteFile().getParentFile();
+            if (dir != null) dir.mkdirs();
+            Path tmp = new File(indexFile.getPath() + ".tmp").toPath();
+            Files.write(tmp, bytes.toByteArray());
+            Files.move(tmp, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            System.out.println("Cannot save library index: " + ex.getMessage());
+        }
+    }
+
+    private static String readOptional(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeOptional(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+}
@@ -0,0 +1,329 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Search over every song of every mood, by the artist and title in the file name ("Artist -
+// Title") and the ID3 title, artist and album. An inverted index: each normalized word
+// (TitleSearch.words) maps to the songs containing it, as song ids plus how much the word counts
+// there (title over artist over album and the rest of the file name).
+// Words are kept sorted, so a query word is looked up exactly, as a prefix (a range of words),
+// and, if it has 4 or more letters, with one typo (two from 8 letters; swapped neighbours
+// count as one) among the words with the same first letter. Songs are ranked by how many query
+// words they match, then by score.
+// Kept in sync per mood from the LibraryIndex: each sync builds a new immutable Index from the
+// words of every song (read once per Entry and kept) and publishes it, so find never waits for
+// a sync. sync and syncAll run on the search thread, find on the EDT.
+final class LibrarySearch {
+
+    record Hit(String mood, File file, String name, float score) {}
+
+    private static final int TITLE = 3, ARTIST = 2, OTHER = 1;
+
+    // one published state of the index, never changed afterwards
+    private static final class Index {
+        static final Index EMPTY = new Index(new String[0], new int[1], new int[0], new byte[0], new LibraryIndex.Entry[0]);
+
+        final String[] words;           // distinct, sorted
+        final int[] postingStart;       // songs of words[i] are postings[postingStart[i] .. postingStart[i + 1])
+        final int[] postings;           // song ids, ascending per word
+        final byte[] weights;           // the word's weight in each of those songs
+        final LibraryIndex.Entry[] songs; // by id
+
+        Index(String[] words, int[] postingStart, int[] postings, byte[] weights, LibraryIndex.Entry[] songs) {
+            this.words = words;
+            this.postingStart = postingStart;
+            this.postings = postings;
+            this.weights = weights;
+            this.songs = songs;
+        }
+
+        // first word >= key
+        int lowerBound(String key) {
+            int i = Arrays.binarySearch(words, key);
+            return i >= 0 ? i : -i - 1;
+        }
+    }
+
+    // a dictionary word, shared by every song containing it; count and fill are build()'s
+    private static final class Word {
+        final String text;
+        int count, fill;
+
+        Word(String text) {
+            this.text = text;
+        }
+    }
+
+    // the distinct words of one song with their weights
+    private record SongWords(Word[] words, byte[] weights) {}
+
+    private volatile Index index = Index.EMPTY;
+
+    // search thread: per mood, the songs last synced (by identity, a re-probed file is a new Entry),
+    // and every word they use
+    private final Map<String, Map<LibraryIndex.Entry, SongWords>> moods = new TreeMap<>();
+    private final Map<String, Word> dictionary = new HashMap<>();
+    private Word[] sortedWords = new Word[0];               // the dictionary as of the last build, by text
+    private final List<Word> addedWords = new ArrayList<>(); // since then
+
+    // EDT: per-song scratch for find, sized for the largest index seen and zeroed after each query
+    private float[] score = new float[0], best = new float[0]; // best: of the current query word
+    private int[] matched = new int[0]; // query words matched
+    private int[] touched = new int[0], candidates = new int[0];
+
+    // brings every mood up to date, including moods whose folder is gone
+    synchronized void syncAll(LibraryIndex library) {
+        Set<String> all = new HashSet<>(library.moods());
+        all.addAll(moods.keySet());
+        sync(library, all);
+    }
+
+    // brings the given moods up to date with the library
+    synchronized void sync(LibraryIndex library, Collection<String> changed) {
+        for (String mood : changed) {
+            List<LibraryIndex.Entry> entries = library.entriesFor(mood);
+            Map<LibraryIndex.Entry, SongWords> old = moods.remove(mood);
+            if (entries.isEmpty()) continue;
+            Map<LibraryIndex.Entry, SongWords> now = new LinkedHashMap<>();
+            for (LibraryIndex.Entry e : entries) {
+                SongWords w = old != null ? old.get(e) : null;
+                now.put(e, w != null ? w : wordsOf(e));
+            }
+            moods.put(mood, now);
+        }
+        index = build();
+    }
+
+    // up to limit songs best matching the query, best first
+    List<Hit> find(String query, int limit) {
+        Index ix = index;
+        List<String> terms = TitleSearch.words(query);
+        int n = ix.songs.length;
+        if (terms.isEmpty() || n == 0) return List.of();
+        if (score.length < n) {
+            score = new float[n];
+            best = new float[n];
+            matched = new int[n];
+            touched = new int[n];
+            candidates = new int[n];
+        }
+        int found = 0; // songs matching any query word, in candidates
+        for (String term : terms) {
+            int count = 0;
+            // exact and prefix matches
+            for (int w = ix.lowerBound(term), end = ix.lowerBound(term + Character.MAX_VALUE); w < end; w++) {
+                float quality = ix.words[w].length() == term.length() ? 1f : 0.5f + 0.4f * term.length() / ix.words[w].length();
+                count = collect(ix, w, quality, count);
+            }
+            // one typo (two in long words), not in the first letter
+            int maxEdits = term.length() >= 8 ? 2 : term.length() >= 4 ? 1 : 0;
+            if (maxEdits > 0) {
+                char first = term.charAt(0);
+                int end = ix.lowerBound(String.valueOf((char) (first + 1)));
+                for (int w = ix.lowerBound(String.valueOf(first)); w < end; w++) {
+                    String word = ix.words[w];
+                    if (word.startsWith(term) || Math.abs(word.length() - term.length()) > maxEdits) continue;
+                    int d = editDistance(term, word, maxEdits);
+                    if (d <= maxEdits) count = collect(ix, w, 0.5f - 0.15f * d, count);
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                int song = touched[i];
+                if (matched[song]++ == 0) candidates[found++] = song;
+                score[song] += best[song];
+                best[song] = 0;
+            }
+        }
+        int most = 0;
+        for (int i = 0; i < found; i++) most = Math.max(most, matched[candidates[i]]);
+        // the best limit of the songs matching the most query words, kept sorted by score (then id)
+        Arrays.sort(candidates, 0, found);
+        int[] top = new int[Math.min(limit, found)];
+        int kept = 0;
+        for (int i = 0; i < found && top.length > 0; i++) {
+            int id = candidates[i];
+            if (matched[id] != most) continue;
+            if (kept == top.length && score[id] <= score[top[kept - 1]]) continue;
+            int at = kept < top.length ? kept++ : kept - 1;
+            while (at > 0 && score[top[at - 1]] < score[id]) {
+                top[at] = top[at - 1];
+                at--;
+            }
+            top[at] = id;
+        }
+        List<Hit> hits = new ArrayList<>(kept);
+        for (int i = 0; i < kept; i++) {
+            LibraryIndex.Entry e = ix.songs[top[i]];
+            hits.add(new Hit(e.mood, e.file, e.displayName(), score[top[i]]));
+        }
+        for (int i = 0; i < found; i++) {
+            score[candidates[i]] = 0;
+            matched[candidates[i]] = 0;
+        }
+        return hits;
+    }
+
+    // adds the songs of word w to the current query word's best scores
+    private int collect(Index ix, int w, float quality, int count) {
+        for (int p = ix.postingStart[w]; p < ix.postingStart[w + 1]; p++) {
+            int song = ix.postings[p];
+            float s = ix.weights[p] * quality;
+            if (best[song] == 0) touched[count++] = song;
+            if (s > best[song]) best[song] = s;
+        }
+        return count;
+    }
+
+    // edit distance of a and b, a swap of two neighbouring letters counting as one edit ("lvoe"),
+    // or max + 1 once it's sure to exceed max
+    static int editDistance(String a, String b, int max) {
+        int n = b.length();
+        int[] before = new int[n + 1], prev = new int[n + 1], cur = new int[n + 1];
+        for (int j = 0; j <= n; j++) prev[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= n; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d = Math.min(d, before[j - 2] + 1);
+                }
+                cur[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > max) return max + 1;
+            int[] t = before;
+            before = prev;
+            prev = cur;
+            cur = t;
+        }
+        return Math.min(prev[n], max + 1);
+    }
+
+    // every synced song numbered in mood and path order, with the postings in the same CSR
+    // layout as TitleSearch: counted per Word, then filled through each Word's cursor
+    private Index build() {
+        for (Word w : dictionary.values()) w.count = 0;
+        int count = 0, total = 0;
+        for (Map<LibraryIndex.Entry, SongWords> mood : moods.values()) {
+            count += mood.size();
+            for (SongWords song : mood.values()) {
+                for (Word w : song.words) w.count++;
+                total += song.words.length;
+            }
+        }
+        mergeAddedWords();
+        // words no longer in any song
+        int live = 0;
+        for (Word w : sortedWords) if (w.count > 0) live++;
+        if (live < sortedWords.length) {
+            dictionary.values().removeIf(w -> w.count == 0);
+            sortedWords = Arrays.stream(sortedWords).filter(w -> w.count > 0).toArray(Word[]::new);
+        }
+        if (count == 0) return Index.EMPTY;
+
+        Word[] sorted = sortedWords;
+        String[] words = new String[live];
+        int[] start = new int[live + 1];
+        for (int i = 0; i < live; i++) {
+            words[i] = sorted[i].text;
+            sorted[i].fill = start[i];
+            start[i + 1] = start[i] + sorted[i].count;
+        }
+        LibraryIndex.Entry[] songs = new LibraryIndex.Entry[count];
+        int[] postings = new int[total];
+        byte[] weights = new byte[total];
+        int id = 0;
+        for (Map<LibraryIndex.Entry, SongWords> mood : moods.values()) {
+            for (Map.Entry<LibraryIndex.Entry, SongWords> song : mood.entrySet()) {
+                SongWords sw = song.getValue();
+                for (int i = 0; i < sw.words.length; i++) {
+                    int at = sw.words[i].fill++;
+                    postings[at] = id;
+                    weights[at] = sw.weights[i];
+                }
+                songs[id++] = song.getKey();
+            }
+        }
+        return new Index(words, start, postings, weights, songs);
+    }
+
+    // sorts only the words new since the last build into sortedWords, which is mostly unchanged
+    private void mergeAddedWords() {
+        if (addedWords.isEmpty()) return;
+        addedWords.sort((a, b) -> a.text.compareTo(b.text));
+        Word[] merged = new Word[sortedWords.length + addedWords.size()];
+        int i = 0, j = 0, k = 0;
+        while (i < sortedWords.length || j < addedWords.size()) {
+            if (j == addedWords.size() || (i < sortedWords.length && sortedWords[i].text.compareTo(addedWords.get(j).text) < 0)) {
+                merged[k++] = sortedWords[i++];
+            } else {
+                merged[k++] = addedWords.get(j++);
+            }
+        }
+        sortedWords = merged;
+        addedWords.clear();
+    }
+
+    // "Artist - Title (Official Video) [id]" from the file name, then the tags
+    private SongWords wordsOf(LibraryIndex.Entry e) {
+        List<String> words = new ArrayList<>();
+        TitleSearch.IntList weights = new TitleSearch.IntList();
+        String name = e.displayName();
+        int dash = name.indexOf(" - ");
+        if (dash > 0) {
+            index(name.substring(0, dash), ARTIST, words, weights);
+            index(name.substring(dash + 3), TITLE, words, weights);
+        } else {
+            index(name, TITLE, words, weights);
+        }
+        if (e.title != null) index(e.title, TITLE, words, weights);
+        if (e.artist != null) index(e.artist, ARTIST, words, weights);
+        if (e.album != null) index(e.album, OTHER, words, weights);
+        Word[] interned = new Word[words.size()];
+        byte[] w = new byte[interned.length];
+        for (int i = 0; i < interned.length; i++) {
+            Word word = dictionary.get(words.get(i));
+            if (word == null) {
+                word = new Word(words.get(i));
+                dictionary.put(word.text, word);
+                addedWords.add(word);
+            }
+            interned[i] = word;
+            w[i] = (byte) weights.items[i];
+        }
+        return new SongWords(interned, w);
+    }
+
+    // adds the words of text, each once, at its highest weight
+    private static void index(String text, int weight, List<String> words, TitleSearch.IntList weights) {
+        // brackets hold "Official Video", video ids and the like
+        boolean bracketed = false;
+        int start = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : '(';
+            if (c != '(' && c != '[' && c != ')' && c != ']') continue;
+            int w = bracketed ? OTHER : weight;
+            for (String word : TitleSearch.words(text.substring(start, i))) {
+                int at = words.indexOf(word);
+                if (at < 0) {
+                    words.add(word);
+                    weights.add(w);
+                } else {
+                    weights.items[at] = Math.max(weights.items[at], w);
+                }
+            }
+            bracketed = c == '(' || c == '[';
+            start = i + 1;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+import java.util.Arrays;
+
+// Integrated loudness (EBU R128 / ITU-R BS.1770-4) and true peak of one track.
+// Feed interleaved float samples with add(), then read integratedLufs() and truePeakDb().
+// K-weighting is the two-stage filter from BS.1770 computed for the actual sample rate;
+// loudness is gated over 400 ms blocks with 75% overlap (absolute gate -70 LUFS, relative
+// gate -10 LU). True peak is measured on a 4x oversampled signal.
+class LoudnessMeter {
+
+    private static final double ABSOLUTE_GATE = -70.0;
+    private static final double RELATIVE_GATE = -10.0;
+    private static final int OVERSAMPLE = 4;
+    private static final int TAPS_PER_PHASE = 12;
+    private static final double[][] INTERPOLATOR = interpolator();
+
+    private final int channels;
+    private final int subBlockFrames;         // 100 ms; a gating block is 4 of them
+
+    // K-weighting biquads (shelf then high-pass), direct form II state per channel
+    private final double sb0, sb1, sb2, sa1, sa2;
+    private final double hb0, hb1, hb2, ha1, ha2;
+    private final double[] s1, s2, h1, h2;
+
+    private final double[] subSum;            // per-channel sum of squares in the current 100 ms
+    private int subFrames;
+    private final double[] recent = new double[3];   // last three sub-block energies
+    private int recentCount;
+    private double[] blocks = new double[1024];          // mean-square energy of every 400 ms block
+    private int blockCount;
+
+    // true peak: last TAPS_PER_PHASE input samples per channel
+    private final double[][] history;
+    private int historyPos;
+    private double peak;
+
+    LoudnessMeter(int channels, float sampleRate) {
+        this.channels = channels;
+        this.subBlockFrames = Math.max(1, Math.round(sampleRate / 10));
+
+        // stage 1: high shelf (+4 dB above ~1.5 kHz), models the head
+        double f0 = 1681.974450955533, g = 3.999843853973347, q = 0.7071752369554196;
+        double k = Math.tan(Math.PI * f0 / sampleRate);
+        double vh = Math.pow(10, g / 20), vb = Math.pow(vh, 0.4996667741545416);
+        double a0 = 1 + k / q + k * k;
+        sb0 = (vh + vb * k / q + k * k) / a0;
+        sb1 = 2 * (k * k - vh) / a0;
+        sb2 = (vh - vb * k / q + k * k) / a0;
+        sa1 = 2 * (k * k - 1) / a0;
+        sa2 = (1 - k / q + k * k) / a0;
+
+        // stage 2: RLB high-pass at ~38 Hz
+        f0 = 38.13547087602444;
+        q = 0.5003270373238773;
+        k = Math.tan(Math.PI * f0 / sampleRate);
+        a0 = 1 + k / q + k * k;
+        hb0 = 1;
+        hb1 = -2;
+        hb2 = 1;
+        ha1 = 2 * (k * k - 1) / a0;
+        ha2 = (1 - k / q + k * k) / a0;
+
+        s1 = new double[channels];
+        s2 = new double[channels];
+        h1 = new double[channels];
+        h2 = new double[channels];
+        subSum = new double[channels];
+        history = new double[channels][TAPS_PER_PHASE];
+    }
+
+    void add(float[] samples, int frames) {
+        int i = 0;
+        for (int f = 0; f < frames; f++) {
+            for (int c = 0; c < channels; c++) {
+                double x = samples[i++];
+                truePeak(c, x);
+
+                double w = x - sa1 * s1[c] - sa2 * s2[c];
+                double y = sb0 * w + sb1 * s1[c] + sb2 * s2[c];
+                s2[c] = s1[c];
+                s1[c] = w;
+                w = y - ha1 * h1[c] - ha2 * h2[c];
+                y = hb0 * w + hb1 * h1[c] + hb2 * h2[c];
+                h2[c] = h1[c];
+                h1[c] = w;
+
+                subSum[c] += y * y;
+            }
+            historyPos = (historyPos + 1) % TAPS_PER_PHASE;
+            if (++subFrames == subBlockFrames) endSubBlock();
+        }
+    }
+
+    private void endSubBlock() {
+        // channel weights are 1.0 for left/right/centre; surround channels aren't used here
+        double energy = 0;
+        for (int c = 0; c < channels; c++) {
+            energy += subSum[c] / subBlockFrames;
+            subSum[c] = 0;
+        }
+        subFrames = 0;
+        if (recentCount == 3) {
+            double block = (recent[0] + recent[1] + recent[2] + energy) / 4;
+            if (blockCount == blocks.length) blocks = Arrays.copyOf(blocks, blockCount * 2);
+            blocks[blockCount++] = block;
+            recent[0] = recent[1];
+            recent[1] = recent[2];
+            recent[2] = energy;
+        } else {
+            recent[recentCount++] = energy;
+        }
+    }
+
+    private void truePeak(int c, double x) {
+        double[] h = history[c];
+        h[historyPos] = x;
+        double p = Math.abs(x);
+        for (int phase = 1; phase < OVERSAMPLE; phase++) {
+            double[] taps = INTERPOLATOR[phase];
+            double acc = 0;
+            int idx = historyPos;
+            for (int t = 0; t < TAPS_PER_PHASE; t++) {
+                acc += taps[t] * h[idx];
+                idx = idx == 0 ? TAPS_PER_PHASE - 1 : idx - 1;
+            }
+            p = Math.max(p, Math.abs(acc));
+        }
+        if (p > peak) peak = p;
+    }
+
+    // Hann-windowed sinc, one row of taps per fractional position between input samples
+    private static double[][] interpolator() {
+        double[][] taps = new double[OVERSAMPLE][TAPS_PER_PHASE];
+        int half = TAPS_PER_PHASE / 2;
+        for (int phase = 0; phase < OVERSAMPLE; phase++) {
+            double frac = (double) phase / OVERSAMPLE;
+            for (int t = 0; t < TAPS_PER_PHASE; t++) {
+                // output lies half taps back in the history, between samples t = half and half - 1
+                double x = (half - t) + frac - 1;
+                double sinc = x == 0 ? 1 : Math.sin(Math.PI * x) / (Math.PI * x);
+                double window = 0.5 + 0.5 * Math.cos(Math.PI * x / (half + 1));
+                taps[phase][t] = sinc * window;
+            }
+        }
+        return taps;
+    }
+
+    // integrated loudness in LUFS; -Infinity for silence or tracks shorter than one block
+    double integratedLufs() {
+        double sum = 0;
+        int n = 0;
+        double absThreshold = energyFor(ABSOLUTE_GATE);
+        for (int i = 0; i < blockCount; i++) {
+            if (blocks[i] > absThreshold) {
+                sum += blocks[i];
+                n++;
+            }
+        }
+        if (n == 0) return Double.NEGATIVE_INFINITY;
+        double relThreshold = energyFor(loudness(sum / n) + RELATIVE_GATE);
+        sum = 0;
+        n = 0;
+        for (int i = 0; i < blockCount; i++) {
+            if (blocks[i] > absThreshold && blocks[i] > relThreshold) {
+                sum += blocks[i];
+                n++;
+            }
+        }
+        return n == 0 ? Double.NEGATIVE_INFINITY : loudness(sum / n);
+    }
+
+    // maximum of the 4x oversampled signal, in dB relative to full scale (dBTP)
+    double truePeakDb() {
+        return peak > 0 ? 20 * Math.log10(peak) : Double.NEGATIVE_INFINITY;
+    }
+
+    private static double loudness(double energy) {
+        return -0.691 + 10 * Math.log10(energy);
+    }
+
+    private static double energyFor(double lufs) {
+        return Math.pow(10, (lufs + 0.691) / 10);
+    }
+}
@@ -0,0 +1,125 @@
+import javax.swing.JButton;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Cursor;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.GradientPaint;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.geom.RoundRectangle2D;
+
+// One of the big gradient buttons of the mood grid. The gradient body and the label are sprites,
+// so a repaint copies two images; the body is stretched while pressed. Only the glow ring is
+// drawn live, with its colour and stroke taken from a table of GLOW_LEVELS steps.
+class MoodButton extends JButton {
+
+    private static final int GLOW_LEVELS = 32;
+    private static final BasicStroke[] GLOW_STROKES = new BasicStroke[GLOW_LEVELS + 1];
+
+    static {
+        for (int i = 1; i <= GLOW_LEVELS; i++) GLOW_STROKES[i] = new BasicStroke(4f * i / GLOW_LEVELS);
+    }
+
+    private final Color baseColor;
+    private final Color[] glowColors = new Color[GLOW_LEVELS + 1];
+    private final Animator.Value glow = new Animator.Value(this, 0f);
+    private final Animator.Value pressScale = new Animator.Value(this, 1f);
+    private final RoundRectangle2D.Float ring = new RoundRectangle2D.Float();
+    private final Sprite body, label;
+
+    // the label's size in the font it was measured with
+    private Font measuredFont;
+    private String measuredText;
+    private int textWidth, textAscent, textHeight;
+
+    MoodButton(String text, Color baseColor) {
+        super(text);
+        this.baseColor = baseColor;
+        for (int i = 1; i <= GLOW_LEVELS; i++) {
+            glowColors[i] = new Color(baseColor.getRed(), baseColor.getGreen(), baseColor.getBlue(), 120 * i / GLOW_LEVELS);
+        }
+        Color top = baseColor.brighter(), bottom = baseColor.darker();
+        body = new Sprite(this, 1, (g, w, h, state) -> {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setPaint(new GradientPaint(0, 0, top, 0, h, bottom));
+            g.fillRoundRect(0, 0, w, h, 40, 40);
+        });
+        label = new Sprite(this, 1, (g, w, h, state) -> {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.BLACK);
+            g.setFont(measuredFont);
+            g.drawString(measuredText, 0, textAscent);
+        });
+        setFocusPainted(false);
+        setContentAreaFilled(false);
+        setOpaque(false);
+        setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+
+        addMouseListener(new MouseAdapter() {
+            @Override public void mouseEntered(MouseEvent e) { startGlow(true); }
+            @Override public void mouseExited(MouseEvent e) { startGlow(false); }
+            @Override public void mousePressed(MouseEvent e) { animatePressDown(); }
+            @Override public void mouseReleased(MouseEvent e) { animatePressUp(); }
+        });
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        int w = getWidth(), h = getHeight();
+
+        // Apply press scale
+        float press = pressScale.get();
+        int scaledW = (int) (w * press);
+        int scaledH = (int) (h * press);
+        int x = (w - scaledW) / 2;
+        int y = (h - scaledH) / 2;
+
+        if (press != 1f) {
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        body.drawScaled(g2, x, y, w, h, 0, scaledW, scaledH);
+
+        int level = Math.round(glow.get() * GLOW_LEVELS);
+        if (level > 0) {
+            g2.setColor(glowColors[level]);
+            g2.setStroke(GLOW_STROKES[level]);
+            ring.setRoundRect(x - 2, y - 2, scaledW + 4, scaledH + 4, 40, 40);
+            g2.draw(ring);
+        }
+
+        measureText();
+        label.draw(g2, (w - textWidth) / 2, (h + textAscent / 2) / 2 - textAscent, textWidth, textHeight, 0);
+    }
+
+    private void measureText() {
+        Font font = getFont();
+        String text = getText();
+        if (font == measuredFont && text == measuredText) return;
+        FontMetrics fm = getFontMetrics(font);
+        measuredFont = font;
+        measuredText = text;
+        textWidth = fm.stringWidth(text);
+        textAscent = fm.getAscent();
+        textHeight = fm.getAscent() + fm.getDescent();
+        label.invalidate();
+    }
+
+    // speeds in units per second: about 190 ms for a full glow, 25 ms for a press
+    private void startGlow(boolean in) {
+        glow.animateTo(in ? 1f : 0f, 5.3f);
+    }
+
+    private void animatePressDown() {
+        pressScale.animateTo(0.9f, 4f);
+    }
+
+    private void animatePressUp() {
+        pressScale.animateTo(1f, 5f);
+    }
+}
@@ -0,0 +1,154 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// Scores tracks against the six moods of the mood screen from their AudioFeatures, so an
+// unsorted import can be placed without listening to it. Features are mapped to 0..1
+// (energy, tempo, brightness, activity, major key) and a track belongs to the mood whose
+// profile is nearest. Each mood starts from a built-in profile; once its folder holds
+// MIN_EXAMPLES analyzed tracks the profile is the average of those, so proposals follow the
+// way the library is already sorted.
+class MoodClassifier {
+
+    static final List<String> MOODS = List.of("happy", "sad", "chill", "energetic", "love", "focus");
+
+    private static final int MIN_EXAMPLES = 3;
+    private static final float SHARPNESS = 20f;     // how quickly scores fall off with distance
+    // energy, tempo, brightness, activity, major - in MOODS order
+    private static final float[][] PROFILES = {
+            {0.70f, 0.60f, 0.60f, 0.65f, 0.85f},
+            {0.45f, 0.25f, 0.45f, 0.45f, 0.20f},
+            {0.45f, 0.35f, 0.45f, 0.40f, 0.60f},
+            {0.80f, 0.70f, 0.70f, 0.80f, 0.50f},
+            {0.50f, 0.45f, 0.50f, 0.45f, 0.70f},
+            {0.25f, 0.45f, 0.25f, 0.20f, 0.45f},
+    };
+
+    private final float[][] profiles = new float[MOODS.size()][];
+
+    // learns profiles from the entries already sorted into mood folders
+    MoodClassifier(Collection<LibraryIndex.Entry> library) {
+        for (int m = 0; m < MOODS.size(); m++) {
+            float[] sum = new float[PROFILES[m].length];
+            int count = 0;
+            for (LibraryIndex.Entry e : library) {
+                AudioFeatures f = e.features;
+                if (f == null || !f.isValid() || !e.mood.equals(MOODS.get(m))) continue;
+                float[] v = vector(f);
+                for (int i = 0; i < v.length; i++) sum[i] += v[i];
+                count++;
+            }
+            if (count >= MIN_EXAMPLES) {
+                for (int i = 0; i < sum.length; i++) sum[i] /= count;
+                profiles[m] = sum;
+            } else {
+                profiles[m] = PROFILES[m];
+            }
+        }
+    }
+
+    static float[] vector(AudioFeatures f) {
+        return new float[]{
+                clamp((f.rmsDb() + 30) / 22),
+                clamp((f.tempoBpm() - 60) / 120),
+                clamp((f.centroidHz() - 300) / 1700),
+                clamp((f.flux() - 0.15f) / 0.12f),
+                clamp(0.5f + f.modeStrength() * 2),
+        };
+    }
+
+    private static float clamp(float v) {
+        return v < 0 ? 0 : (v > 1 ? 1 : v);
+    }
+
+    // one score per mood in MOODS order, summing to 1
+    float[] scores(AudioFeatures f) {
+        float[] v = vector(f);
+        float[] s = new float[profiles.length];
+        double total = 0;
+        for (int m = 0; m < profiles.length; m++) {
+            double d = 0;
+            for (int i = 0; i < v.length; i++) d += (v[i] - profiles[m][i]) * (v[i] - profiles[m][i]);
+            s[m] = (float) Math.exp(-SHARPNESS * d);
+            total += s[m];
+        }
+        for (int m = 0; m < s.length; m++) s[m] /= (float) total;
+        return s;
+    }
+
+    String propose(AudioFeatures f) {
+        float[] s = scores(f);
+        int best = 0;
+        for (int m = 1; m < s.length; m++) if (s[m] > s[best]) best = m;
+        return MOODS.get(best);
+    }
+
+    // Analyzes the library and proposes a mood folder for every track outside the six mood
+    // folders (with --all, for every track). --apply moves them there.
+    // Usage: MoodClassifier [--all] [--apply] [musicDir] [indexFile]
+    public static void main(String[] args) throws IOException {
+        boolean all = false, apply = false;
+        List<String> paths = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--all")) all = true;
+            else if (arg.equals("--apply")) apply = true;
+            else paths.add(arg);
+        }
+        File root = new File(paths.size() > 0 ? paths.get(0) : "music/");
+        File indexFile = new File(paths.size() > 1 ? paths.get(1) : "cache/library.idx");
+        LibraryIndex library = LibraryIndex.load(root, indexFile);
+        library.rescan();
+        long start = System.nanoTime();
+        new LibraryAnalyzer(library, new WaveformStore(new File(indexFile.getAbsoluteFile().getParentFile(), "waveforms"))).analyze();
+        System.out.printf("analyzed in %.1f s%n", (System.nanoTime() - start) / 1e9);
+
+        MoodClassifier classifier = new MoodClassifier(library.allEntries());
+        List<Path> moved = new ArrayList<>();
+        List<LibraryIndex.Entry> movedEntries = new ArrayList<>();
+        int agree = 0, sorted = 0;
+        for (LibraryIndex.Entry e : new ArrayList<>(library.allEntries())) {
+            AudioFeatures f = e.features;
+            boolean unsorted = !MOODS.contains(e.mood);
+            if (f == null || !f.isValid() || !(unsorted || all)) continue;
+            float[] s = classifier.scores(f);
+            String mood = classifier.propose(f);
+            StringBuilder line = new StringBuilder(String.format("%-10s %s  [", mood, e.path));
+            for (int m = 0; m < s.length; m++) line.append(String.format("%s%s %.2f", m > 0 ? ", " : "", MOODS.get(m), s[m]));
+            System.out.println(line.append("]  ").append(f));
+            if (!unsorted) {
+                sorted++;
+                if (mood.equals(e.mood)) agree++;
+                continue;
+            }
+            if (!apply) continue;
+            Path target = new File(new File(root, mood), e.file.getName()).toPath();
+            if (Files.exists(target)) {
+                System.out.println("  not moved, " + target + " exists");
+                continue;
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(e.file.toPath(), target);
+            moved.add(e.file.toPath());
+            moved.add(target);
+            movedEntries.add(e);
+        }
+        if (sorted > 0) System.out.printf("%d of %d sorted tracks are in the proposed folder%n", agree, sorted);
+        if (!moved.isEmpty()) {
+            Set<String> changed = library.applyChanges(moved);
+            // same audio under a new path: keep the analysis instead of decoding it again
+            for (int i = 0; i < movedEntries.size(); i++) {
+                LibraryIndex.Entry old = movedEntries.get(i), now = library.get(moved.get(2 * i + 1).toFile());
+                if (now == null) continue;
+                now.loudness = old.loudness;
+                now.features = old.features;
+            }
+            library.save();
+            System.out.println("moved " + moved.size() / 2 + " tracks into " + changed);
+        }
+    }
+}
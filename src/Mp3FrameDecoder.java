@@ -0,0 +1,175 @@
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.BitstreamException;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.DecoderException;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.Obuffer;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// 16-bit little-endian PCM straight from JLayer's Bitstream/Decoder. The decoder's synthesis
+// output is written directly into one reusable byte array, one frame at a time, instead of
+// going through mp3spi's decoded stream, tritonus' format conversion and their circular
+// buffers. Nothing is allocated per frame.
+class Mp3FrameDecoder extends InputStream {
+
+    final AudioFormat format;
+
+    private final InputStream in;
+    private final Bitstream bitstream;
+    private final Decoder decoder = new Decoder();
+    private final PcmBuffer pcm;
+    private int pcmPos;
+    private boolean eof;
+
+    // reads the first frame header to learn the format; throws if the stream doesn't start with MPEG audio
+    Mp3FrameDecoder(InputStream in) throws IOException {
+        this.in = in;
+        this.bitstream = new Bitstream(in);
+        Header first;
+        try {
+            first = bitstream.readFrame();
+        } catch (BitstreamException ex) {
+            throw new IOException("Cannot read MP3 frame", ex);
+        }
+        if (first == null) throw new IOException("No MP3 frames");
+        int channels = first.mode() == Header.SINGLE_CHANNEL ? 1 : 2;
+        int rate = first.frequency();
+        format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, rate, 16, channels, channels * 2, rate, false);
+        pcm = new PcmBuffer(channels);
+        decoder.setOutputBuffer(pcm);
+        decode(first);
+    }
+
+    static Mp3FrameDecoder open(File file, long offset) throws IOException {
+        FileInputStream fin = new FileInputStream(file);
+        try {
+            fin.getChannel().position(offset);
+            return new Mp3FrameDecoder(new BufferedInputStream(fin, 64 * 1024));
+        } catch (IOException | RuntimeException ex) {
+            fin.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        while (pcmPos >= pcm.length) {
+            if (eof || !nextFrame()) return -1;
+        }
+        int n = Math.min(len, pcm.length - pcmPos);
+        System.arraycopy(pcm.bytes, pcmPos, b, off, n);
+        pcmPos += n;
+        return n;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    private boolean nextFrame() throws IOException {
+        Header h;
+        try {
+            h = bitstream.readFrame();
+        } catch (BitstreamException ex) {
+            h = null; // truncated last frame or trailing junk: treat as the end, like the SPI does
+        }
+        if (h == null) {
+            eof = true;
+            return false;
+        }
+        decode(h);
+        return true;
+    }
+
+    private void decode(Header h) {
+        pcm.clear_buffer();
+        try {
+            decoder.decodeFrame(h, bitstream);
+        } catch (DecoderException | RuntimeException ex) {
+            pcm.clear_buffer(); // corrupt frame: drop it and keep going
+        } finally {
+            bitstream.closeFrame();
+        }
+        pcm.length = pcm.end();
+        pcmPos = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try { bitstream.close(); } catch (BitstreamException ignored) {}
+        in.close();
+    }
+
+    // Obuffer the synthesis filter writes into: interleaved 16-bit little-endian samples
+    private static final class PcmBuffer extends Obuffer {
+        final byte[] bytes = new byte[OBUFFERSIZE * 2];
+        final int channels;
+        final int[] pos;
+        int length;
+
+        PcmBuffer(int channels) {
+            this.channels = channels;
+            this.pos = new int[channels];
+            clear_buffer();
+        }
+
+        @Override
+        public void append(int channel, short value) {
+            int p = pos[channel];
+            bytes[p] = (byte) value;
+            bytes[p + 1] = (byte) (value >> 8);
+            pos[channel] = p + channels * 2;
+        }
+
+        // 32 samples per call from the synthesis filter; clip and store without the per-sample virtual call
+        @Override
+        public void appendSamples(int channel, float[] f) {
+            int p = pos[channel], step = channels * 2;
+            for (int i = 0; i < 32; i++) {
+                float s = f[i];
+                short v = s > 32767.0f ? 32767 : s < -32768.0f ? -32768 : (short) s;
+                bytes[p] = (byte) v;
+                bytes[p + 1] = (byte) (v >> 8);
+                p += step;
+            }
+            pos[channel] = p;
+        }
+
+        int end() {
+            return pos[0];
+        }
+
+        @Override
+        public void write_buffer(int val) {}
+
+        @Override
+        public void close() {}
+
+        @Override
+        public void clear_buffer() {
+            for (int c = 0; c < channels; c++) pos[c] = c * 2;
+        }
+
+        @Override
+        public void set_stop_flag() {}
+    }
+
+    // the mp3spi + tritonus conversion chain the app used before (also benchmarked against)
+    static InputStream spiStream(File file) throws Exception {
+        AudioInputStream base = AudioSystem.getAudioInputStream(file);
+        AudioFormat bf = base.getFormat();
+        AudioFormat target = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, bf.getSampleRate(), 16,
+                bf.getChannels(), bf.getChannels() * 2, bf.getSampleRate(), false);
+        return AudioSystem.getAudioInputStream(target, base);
+    }
+}
@@ -0,0 +1,259 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+// Reads the MP3 frame header and the Xing/Info + LAME tag at the start of a file.
+// The LAME tag carries the encoder delay and padding needed for gapless playback.
+class Mp3Info {
+
+    // MP3 decoders (JLayer included) output this many samples of delay before the real audio
+    static final int DECODER_DELAY = 529;
+
+    private static final int[][] BITRATES_V1 = {
+            {},
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},  // layer I
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},     // layer II
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320}       // layer III
+    };
+    private static final int[][] BITRATES_V2 = {
+            {},
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}
+    };
+    private static final int[] SAMPLE_RATES_V1 = {44100, 48000, 32000};
+
+    long fileLength;
+    long audioStart = -1;       // offset of the first frame (the Info frame if there is one)
+    long firstAudioFrame = -1;  // offset of the first frame carrying audio
+    int sampleRate;
+    int channels;
+    int samplesPerFrame;
+    boolean hasInfoFrame;       // Xing/Info/VBRI frame present (decodes to one frame of silence)
+    long frameCount = -1;       // audio frames, excluding the Info frame
+    long streamBytes = -1;
+    int encoderDelay = -1;
+    int encoderPadding = -1;
+    int infoFrameLength;
+
+    // seek tables from the Info frame, used until a full frame scan is available
+    byte[] xingToc;             // 100 entries, byte position of each percent of the track / 256
+    int[] vbriOffsets;          // byte offset (from audioStart) of every vbriFramesPerEntry frames
+    int vbriFramesPerEntry;
+
+    static Mp3Info read(File file) throws IOException {
+        Mp3Info info = new Mp3Info();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            info.fileLength = raf.length();
+            long pos = skipId3v2(raf);
+
+            byte[] buf = new byte[8192];
+            raf.seek(pos);
+            int n = raf.read(buf);
+            if (n <= 4) return info;
+
+            int off = findFrame(buf, 0, n);
+            if (off < 0) return info;
+            int header = headerAt(buf, off);
+            info.audioStart = pos + off;
+            info.firstAudioFrame = info.audioStart;
+            info.sampleRate = sampleRate(header);
+            info.channels = channelMode(header) == 3 ? 1 : 2;
+            info.samplesPerFrame = samplesPerFrame(header);
+
+            int frameLen = frameLength(header);
+            info.parseInfoFrame(buf, off, Math.min(n, off + frameLen), header);
+            if (info.hasInfoFrame) {
+                info.infoFrameLength = frameLen;
+                info.firstAudioFrame = info.audioStart + frameLen;
+            }
+            if (info.streamBytes <= 0) info.streamBytes = info.fileLength - info.firstAudioFrame;
+        }
+        return info;
+    }
+
+    // total PCM samples per channel once delay and padding are removed, -1 if unknown
+    long totalSamples() {
+        if (frameCount <= 0 || samplesPerFrame <= 0) return -1;
+        long total = frameCount * samplesPerFrame;
+        if (encoderDelay >= 0) total -= encoderDelay + Math.max(0, encoderPadding);
+        return total;
+    }
+
+    long durationMicros() {
+        long samples = totalSamples();
+        if (samples <= 0 || sampleRate <= 0) return -1;
+        return samples * 1_000_000L / sampleRate;
+    }
+
+    boolean hasGaplessInfo() {
+        return encoderDelay >= 0 && frameCount > 0;
+    }
+
+    // samples the decoder emits before the first real sample of the track
+    int leadingSamples() {
+        int lead = hasInfoFrame ? samplesPerFrame : 0;
+        if (encoderDelay >= 0) lead += encoderDelay + DECODER_DELAY;
+        return lead;
+    }
+
+    private void parseInfoFrame(byte[] buf, int frameOff, int frameEnd, int header) {
+        boolean mpeg1 = version(header) == 3;
+        boolean mono = channelMode(header) == 3;
+        int xing = frameOff + 4 + (mpeg1 ? (mono ? 17 : 32) : (mono ? 9 : 17));
+
+        if (xing + 8 <= frameEnd && (matches(buf, xing, "Xing") || matches(buf, xing, "Info"))) {
+            hasInfoFrame = true;
+            int flags = readInt(buf, xing + 4);
+            int p = xing + 8;
+            if ((flags & 1) != 0) { frameCount = readInt(buf, p) & 0xFFFFFFFFL; p += 4; }
+            if ((flags & 2) != 0) { streamBytes = readInt(buf, p) & 0xFFFFFFFFL; p += 4; }
+            if ((flags & 4) != 0) {
+                if (p + 100 <= frameEnd) xingToc = Arrays.copyOfRange(buf, p, p + 100);
+                p += 100;
+            }
+            if ((flags & 8) != 0) p += 4;
+            // LAME extension: 9 byte encoder string, delay/padding packed as 12+12 bits at +21
+            if (p + 24 <= frameEnd && (matches(buf, p, "LAME") || matches(buf, p, "Lav") || matches(buf, p, "GOGO"))) {
+                int b0 = buf[p + 21] & 0xFF, b1 = buf[p + 22] & 0xFF, b2 = buf[p + 23] & 0xFF;
+                encoderDelay = (b0 << 4) | (b1 >> 4);
+                encoderPadding = ((b1 & 0x0F) << 8) | b2;
+            }
+            return;
+        }
+
+        int vbri = frameOff + 4 + 32;
+        if (vbri + 18 <= frameEnd && matches(buf, vbri, "VBRI")) {
+            hasInfoFrame = true;
+            streamBytes = readInt(buf, vbri + 10) & 0xFFFFFFFFL;
+            frameCount = readInt(buf, vbri + 14) & 0xFFFFFFFFL;
+            if (vbri + 26 > frameEnd) return;
+            int entries = readShort(buf, vbri + 18);
+            int scale = readShort(buf, vbri + 20);
+            int entryBytes = readShort(buf, vbri + 22);
+            vbriFramesPerEntry = readShort(buf, vbri + 24);
+            int table = vbri + 26;
+            if (entryBytes < 1 || entryBytes > 4 || table + entries * entryBytes > frameEnd) return;
+            vbriOffsets = new int[entries + 1];
+            for (int i = 0; i < entries; i++) {
+                int size = 0;
+                for (int b = 0; b < entryBytes; b++) size = (size << 8) | (buf[table + i * entryBytes + b] & 0xFF);
+                vbriOffsets[i + 1] = vbriOffsets[i] + size * scale;
+            }
+        }
+    }
+
+    // Layer III frames may take part of their data from earlier frames (the bit reservoir).
+    // When decoding starts mid-stream the decoder emits nothing for frames whose data reaches
+    // back before the start, so count how many of the first frames in buf will produce no output.
+    static int framesLostToReservoir(byte[] buf, int len) {
+        int lost = 0, available = 0, off = 0;
+        for (int i = 0; i < 4 && off + 6 <= len; i++) {
+            int h = headerAt(buf, off);
+            if (!isValidHeader(h) || layer(h) != 3) break;
+            boolean mpeg1 = version(h) == 3;
+            boolean mono = channelMode(h) == 3;
+            int crc = ((h >>> 16) & 1) == 0 ? 2 : 0;
+            int sideInfo = mpeg1 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+            int side = off + 4 + crc;
+            int mainDataBegin = mpeg1
+                    ? ((buf[side] & 0xFF) << 1) | ((buf[side + 1] & 0xFF) >>> 7)
+                    : buf[side] & 0xFF;
+            if (mainDataBegin > available) {
+                if (lost != i) break; // only leading frames matter
+                lost++;
+            }
+            int frameLen = frameLength(h);
+            available += frameLen - 4 - crc - sideInfo;
+            off += frameLen;
+        }
+        return lost;
+    }
+
+    // ===== frame header helpers =====
+
+    static long skipId3v2(RandomAccessFile raf) throws IOException {
+        byte[] h = new byte[10];
+        raf.seek(0);
+        if (raf.read(h) < 10 || h[0] != 'I' || h[1] != 'D' || h[2] != '3') return 0;
+        long size = ((h[6] & 0x7F) << 21) | ((h[7] & 0x7F) << 14) | ((h[8] & 0x7F) << 7) | (h[9] & 0x7F);
+        boolean footer = (h[5] & 0x10) != 0;
+        return 10 + size + (footer ? 10 : 0);
+    }
+
+    // first offset in buf holding a valid header that is followed by another valid header
+    static int findFrame(byte[] buf, int from, int to) {
+        for (int i = from; i + 4 <= to; i++) {
+            if ((buf[i] & 0xFF) != 0xFF || (buf[i + 1] & 0xE0) != 0xE0) continue;
+            int h = headerAt(buf, i);
+            if (!isValidHeader(h)) continue;
+            int next = i + frameLength(h);
+            if (next + 4 > to) return i; // can't confirm, trust it
+            if (isValidHeader(headerAt(buf, next))) return i;
+        }
+        return -1;
+    }
+
+    static int headerAt(byte[] buf, int off) {
+        return ((buf[off] & 0xFF) << 24) | ((buf[off + 1] & 0xFF) << 16)
+                | ((buf[off + 2] & 0xFF) << 8) | (buf[off + 3] & 0xFF);
+    }
+
+    static boolean isValidHeader(int h) {
+        if ((h & 0xFFE00000) != 0xFFE00000) return false;
+        int version = version(h), layer = layer(h);
+        int bitrateIndex = (h >>> 12) & 0xF, rateIndex = (h >>> 10) & 0x3;
+        return version != 1 && layer != 0 && bitrateIndex != 0 && bitrateIndex != 15 && rateIndex != 3;
+    }
+
+    // 3 = MPEG1, 2 = MPEG2, 0 = MPEG2.5
+    static int version(int h) { return (h >>> 19) & 0x3; }
+
+    // 1 = layer I, 2 = layer II, 3 = layer III
+    static int layer(int h) { return 4 - ((h >>> 17) & 0x3); }
+
+    static int channelMode(int h) { return (h >>> 6) & 0x3; }
+
+    static int sampleRate(int h) {
+        int rate = SAMPLE_RATES_V1[(h >>> 10) & 0x3];
+        return switch (version(h)) {
+            case 3 -> rate;
+            case 2 -> rate / 2;
+            default -> rate / 4;
+        };
+    }
+
+    static int bitrate(int h) {
+        int[][] table = version(h) == 3 ? BITRATES_V1 : BITRATES_V2;
+        return table[layer(h)][(h >>> 12) & 0xF] * 1000;
+    }
+
+    static int samplesPerFrame(int h) {
+        int layer = layer(h);
+        if (layer == 1) return 384;
+        if (layer == 2) return 1152;
+        return version(h) == 3 ? 1152 : 576;
+    }
+
+    static int frameLength(int h) {
+        int padding = (h >>> 9) & 0x1;
+        if (layer(h) == 1) return (12 * bitrate(h) / sampleRate(h) + padding) * 4;
+        return samplesPerFrame(h) / 8 * bitrate(h) / sampleRate(h) + padding;
+    }
+
+    private static boolean matches(byte[] buf, int off, String tag) {
+        for (int i = 0; i < tag.length(); i++) {
+            if (buf[off + i] != tag.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int readInt(byte[] buf, int off) {
+        return headerAt(buf, off);
+    }
+
+    private static int readShort(byte[] buf, int off) {
+        return ((buf[off] & 0xFF) << 8) | (buf[off + 1] & 0xFF);
+    }
+}
@@ -0,0 +1,146 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Frame offset -> timestamp table for one MP3 file. Built once, either from the Xing/VBRI
+// table of contents (coarse, instant) or from a full scan of the frame headers (exact),
+// so a seek is a lookup instead of a byte-ratio guess followed by skipping the prefix.
+class Mp3SeekIndex {
+
+    private static final int CACHE_SIZE = 32;
+    private static final Map<String, Mp3SeekIndex> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Mp3SeekIndex> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    final boolean exact;        // every frame is listed (full scan) rather than TOC points
+    private final int[] offsets; // byte offset of each entry relative to Mp3Info.firstAudioFrame
+    private final int[] frames;  // frame number of each entry; null when entry i is frame i
+    private final int size;
+
+    private Mp3SeekIndex(int[] offsets, int[] frames, int size, boolean exact) {
+        this.offsets = offsets;
+        this.frames = frames;
+        this.size = size;
+        this.exact = exact;
+    }
+
+    // best index available right now: a cached full scan, else the file's own TOC, else null
+    static Mp3SeekIndex forFile(File file, Mp3Info info) {
+        Mp3SeekIndex index;
+        synchronized (cache) {
+            index = cache.get(cacheKey(file));
+        }
+        return index != null ? index : fromToc(info);
+    }
+
+    // full frame scan, cached so later seeks in the same file skip it
+    static Mp3SeekIndex scan(File file, Mp3Info info) throws IOException {
+        String key = cacheKey(file);
+        synchronized (cache) {
+            Mp3SeekIndex cached = cache.get(key);
+            if (cached != null) return cached;
+        }
+        Mp3SeekIndex index = scanFrames(file, info);
+        if (index != null) {
+            synchronized (cache) {
+                cache.put(key, index);
+            }
+        }
+        return index;
+    }
+
+    static Mp3SeekIndex fromToc(Mp3Info info) {
+        if (info == null || info.frameCount <= 0) return null;
+        int skip = info.infoFrameLength; // TOC positions count from the Info frame
+
+        if (info.xingToc != null && info.streamBytes > 0) {
+            int[] offsets = new int[100];
+            int[] frames = new int[100];
+            for (int i = 0; i < 100; i++) {
+                long pos = (info.xingToc[i] & 0xFF) * info.streamBytes / 256;
+                offsets[i] = (int) Math.max(0, pos - skip);
+                frames[i] = (int) (info.frameCount * i / 100);
+            }
+            return new Mp3SeekIndex(offsets, frames, 100, false);
+        }
+
+        if (info.vbriOffsets != null && info.vbriFramesPerEntry > 0) {
+            int n = info.vbriOffsets.length;
+            int[] offsets = new int[n];
+            int[] frames = new int[n];
+            for (int i = 0; i < n; i++) {
+                offsets[i] = Math.max(0, info.vbriOffsets[i] - skip);
+                frames[i] = i * info.vbriFramesPerEntry;
+            }
+            return new Mp3SeekIndex(offsets, frames, n, false);
+        }
+        return null;
+    }
+
+    // uncached; also timed by the benchmarks
+    static Mp3SeekIndex scanFrames(File file, Mp3Info info) throws IOException {
+        if (info == null || info.firstAudioFrame < 0) return null;
+        int[] offsets = new int[info.frameCount > 0 ? (int) info.frameCount + 8 : 4096];
+        int count = 0;
+        int firstHeader = 0;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            byte[] window = new byte[64 * 1024];
+            long windowStart = 0;
+            int windowLen = 0;
+            long end = raf.length();
+            long pos = info.firstAudioFrame;
+
+            while (pos + 4 <= end) {
+                if (pos < windowStart || pos + 4 > windowStart + windowLen) {
+                    windowStart = pos;
+                    raf.seek(pos);
+                    windowLen = Math.max(0, raf.read(window));
+                    if (windowLen < 4) break;
+                }
+                int h = Mp3Info.headerAt(window, (int) (pos - windowStart));
+                // frames of one stream share version, layer and sample rate; anything else is junk
+                if (Mp3Info.isValidHeader(h) && (firstHeader == 0 || (h & 0xFFFE0C00) == (firstHeader & 0xFFFE0C00))) {
+                    if (firstHeader == 0) firstHeader = h;
+                    if (count == offsets.length) offsets = Arrays.copyOf(offsets, count * 2);
+                    offsets[count++] = (int) (pos - info.firstAudioFrame);
+                    pos += Mp3Info.frameLength(h);
+                } else {
+                    pos++; // lost sync (ID3v1 tag, garbage), walk until the next header
+                }
+            }
+        }
+        if (count == 0) return null;
+        return new Mp3SeekIndex(offsets, null, count, true);
+    }
+
+    private static String cacheKey(File file) {
+        return file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified();
+    }
+
+    // entry at or before the given frame, O(log n)
+    int entryForFrame(long frame) {
+        if (frames == null) return (int) Math.max(0, Math.min(size - 1, frame));
+        int i = Arrays.binarySearch(frames, 0, size, (int) Math.min(Integer.MAX_VALUE, frame));
+        if (i < 0) i = -i - 2;
+        return Math.max(0, i);
+    }
+
+    int frameAt(int entry) {
+        return frames == null ? entry : frames[entry];
+    }
+
+    long offsetAt(int entry) {
+        return offsets[entry];
+    }
+
+    int size() {
+        return size;
+    }
+}
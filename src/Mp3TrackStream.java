@@ -0,0 +1,195 @@
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+// Decoded PCM stream for one MP3 file, from Mp3FrameDecoder (or the mp3spi chain for
+// anything it can't open). Strips the encoder delay and padding described
+// by the LAME tag so consecutive tracks join without silence, and can decode its first
+// chunk ahead of time so the player thread can switch to it without waiting.
+class Mp3TrackStream extends TrackStream {
+
+    final Mp3Info info;
+
+    private final InputStream decodedStream;
+    private final Closeable baseStream;  // SPI fallback only: the undecoded stream under decodedStream
+
+    private long skipBytes;       // decoder/encoder delay still to drop
+    private long remainingBytes;  // real audio left before the padding, -1 if unknown
+
+    private byte[] prefetched;
+    private int prefetchedPos, prefetchedLen;
+    private long durationMicros = Long.MIN_VALUE;
+
+    private static final int SEEK_PREROLL_FRAMES = 2;
+
+    private Mp3TrackStream(File file, Mp3Info info, AudioFormat format, InputStream decodedStream,
+                           Closeable baseStream, boolean fromStart) {
+        super(file, format);
+        this.info = info;
+        this.decodedStream = decodedStream;
+        this.baseStream = baseStream;
+
+        int frameSize = format.getFrameSize();
+        if (fromStart && info != null && info.hasGaplessInfo()) {
+            skipBytes = (long) info.leadingSamples() * frameSize;
+            remainingBytes = info.totalSamples() * frameSize;
+        } else {
+            skipBytes = 0;
+            remainingBytes = -1;
+        }
+    }
+
+    // decoder reading from byte offset (0 = the whole file, ID3 tag included)
+    private static Mp3TrackStream create(File file, Mp3Info info, long offset, boolean fromStart) throws Exception {
+        try {
+            Mp3FrameDecoder decoder = Mp3FrameDecoder.open(file, offset);
+            return new Mp3TrackStream(file, info, decoder.format, decoder, null, fromStart);
+        } catch (IOException ex) {
+            return createSpi(file, info, offset, fromStart);
+        }
+    }
+
+    private static Mp3TrackStream createSpi(File file, Mp3Info info, long offset, boolean fromStart) throws Exception {
+        AudioInputStream baseStream;
+        if (offset == 0) {
+            baseStream = AudioSystem.getAudioInputStream(file);
+        } else {
+            FileInputStream in = new FileInputStream(file);
+            try {
+                in.getChannel().position(offset);
+                baseStream = AudioSystem.getAudioInputStream(new BufferedInputStream(in));
+            } catch (Exception ex) {
+                in.close();
+                throw ex;
+            }
+        }
+        AudioFormat baseFormat = baseStream.getFormat();
+        AudioFormat format = new AudioFormat(
+                AudioFormat.Encoding.PCM_SIGNED,
+                baseFormat.getSampleRate(),
+                16,
+                baseFormat.getChannels(),
+                baseFormat.getChannels() * 2,
+                baseFormat.getSampleRate(),
+                false
+        );
+        return new Mp3TrackStream(file, info, format, AudioSystem.getAudioInputStream(format, baseStream),
+                baseStream, fromStart);
+    }
+
+    static Mp3TrackStream open(File file) throws Exception {
+        Mp3Info info = null;
+        try { info = Mp3Info.read(file); } catch (IOException ignored) {}
+        return create(file, info, 0, true);
+    }
+
+    // stream starting at the given track position. The seek index gives the frame to start
+    // decoding from; the few samples between that frame and the target are decoded and dropped,
+    // so startMicros is the exact position of the first sample returned.
+    static Mp3TrackStream openAt(File file, Mp3Info info, long micros) throws Exception {
+        if (info == null || info.sampleRate <= 0) return open(file);
+        Mp3SeekIndex index = Mp3SeekIndex.forFile(file, info);
+        if (index == null) index = Mp3SeekIndex.scan(file, info);
+        if (index == null) return open(file);
+
+        long target = Math.max(0, micros) * info.sampleRate / 1_000_000L;
+        if (info.hasGaplessInfo()) target = Math.min(target, info.totalSamples());
+        // sample number in the decoder's output when decoding from the first audio frame
+        long raw = target + (info.hasGaplessInfo() ? info.encoderDelay + Mp3Info.DECODER_DELAY : 0);
+        // start a couple of frames early: layer III frames may borrow bits from earlier frames
+        // and the synthesis filter needs one frame of history
+        long frame = raw / info.samplesPerFrame - SEEK_PREROLL_FRAMES;
+        int entry = index.entryForFrame(Math.max(0, frame));
+
+        long offset = info.firstAudioFrame + index.offsetAt(entry);
+        int lost = 0;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            byte[] head = new byte[8192];
+            raf.seek(offset);
+            lost = Mp3Info.framesLostToReservoir(head, Math.max(0, raf.read(head)));
+        }
+        long firstSample = (long) (index.frameAt(entry) + lost) * info.samplesPerFrame;
+
+        Mp3TrackStream stream = create(file, info, offset, false);
+        int frameSize = stream.format.getFrameSize();
+        stream.skipBytes = Math.max(0, raw - firstSample) * frameSize;
+        if (info.hasGaplessInfo()) stream.remainingBytes = (info.totalSamples() - target) * frameSize;
+        stream.startMicros = target * 1_000_000L / info.sampleRate;
+        return stream;
+    }
+
+    @Override
+    Mp3TrackStream seekTo(long micros) throws Exception {
+        return openAt(file, info, micros);
+    }
+
+    // decode up to maxBytes ahead so the first read after a track switch doesn't hit the decoder
+    @Override
+    void prefetch(int maxBytes) throws IOException {
+        byte[] buf = new byte[maxBytes];
+        int len = 0, n;
+        while (len < buf.length && (n = readTrimmed(buf, len, buf.length - len)) > 0) {
+            len += n;
+        }
+        prefetched = buf;
+        prefetchedPos = 0;
+        prefetchedLen = len;
+        durationMicros();
+    }
+
+    @Override
+    int read(byte[] b, int off, int len) throws IOException {
+        if (prefetched != null) {
+            if (prefetchedPos < prefetchedLen) {
+                int n = Math.min(len, prefetchedLen - prefetchedPos);
+                System.arraycopy(prefetched, prefetchedPos, b, off, n);
+                prefetchedPos += n;
+                return n;
+            }
+            prefetched = null;
+        }
+        return readTrimmed(b, off, len);
+    }
+
+    private int readTrimmed(byte[] b, int off, int len) throws IOException {
+        while (skipBytes > 0) {
+            int n = decodedStream.read(b, off, (int) Math.min(len, skipBytes));
+            if (n == -1) return -1;
+            skipBytes -= n;
+        }
+        if (remainingBytes == 0) return -1;
+        if (remainingBytes > 0) len = (int) Math.min(len, remainingBytes);
+        int n = decodedStream.read(b, off, len);
+        if (n > 0 && remainingBytes > 0) remainingBytes -= n;
+        return n;
+    }
+
+    // duration in microseconds: exact from the LAME tag when present, else the SPI estimate
+    @Override
+    long durationMicros() {
+        if (durationMicros != Long.MIN_VALUE) return durationMicros;
+        durationMicros = -1;
+        if (info != null && info.hasGaplessInfo()) {
+            durationMicros = info.durationMicros();
+        } else {
+            try {
+                Object dur = AudioSystem.getAudioFileFormat(file).properties().get("duration");
+                if (dur instanceof Long) durationMicros = (Long) dur;
+            } catch (Exception ignored) {}
+        }
+        return durationMicros;
+    }
+
+    @Override
+    public void close() {
+        try { decodedStream.close(); } catch (Exception ignored) {}
+        try { if (baseStream != null) baseStream.close(); } catch (Exception ignored) {}
+    }
+}
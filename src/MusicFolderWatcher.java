@@ -0,0 +1,117 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+// Watches the whole music/ tree and feeds changes into the LibraryIndex in batches.
+// Events are collected until the folder has been quiet for a moment (or a batch has been
+// open for MAX_BATCH_MILLIS), so copying thousands of files gives a handful of updates.
+class MusicFolderWatcher implements Closeable {
+
+    interface Listener {
+        // called on the watcher thread once per batch with the moods whose songs changed
+        void libraryChanged(Set<String> moods);
+    }
+
+    private static final long QUIET_MILLIS = 400;
+    private static final long MAX_BATCH_MILLIS = 2000;
+
+    private final LibraryIndex library;
+    private final Listener listener;
+    private final WatchService watcher;
+    private final Map<WatchKey, Path> keys = new HashMap<>();
+
+    private MusicFolderWatcher(LibraryIndex library, Listener listener) throws IOException {
+        this.library = library;
+        this.listener = listener;
+        this.watcher = FileSystems.getDefault().newWatchService();
+    }
+
+    static MusicFolderWatcher start(Path root, LibraryIndex library, Listener listener) throws IOException {
+        MusicFolderWatcher w = new MusicFolderWatcher(library, listener);
+        w.registerTree(root);
+        Thread t = new Thread(w::run, "music-watch-thread");
+        t.setDaemon(true);
+        t.start();
+        return w;
+    }
+
+    private void registerTree(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+                keys.put(d.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                Set<Path> changed = new LinkedHashSet<>();
+                long batchStart = System.currentTimeMillis();
+                boolean overflow = collect(key, changed);
+                while (System.currentTimeMillis() - batchStart < MAX_BATCH_MILLIS
+                        && (key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collect(key, changed);
+                }
+
+                Set<String> moods;
+                if (overflow) {
+                    // events were lost, fall back to an (mtime-pruned) rescan
+                    try { library.rescan(); } catch (IOException ex) { continue; }
+                    moods = library.moods();
+                } else {
+                    moods = library.applyChanges(changed);
+                }
+                if (!moods.isEmpty()) listener.libraryChanged(moods);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        } catch (Exception ex) {
+            System.out.println("Music folder watcher stopped: " + ex.getMessage());
+        }
+    }
+
+    // drain one key into changed; true if the OS dropped events
+    private boolean collect(WatchKey key, Set<Path> changed) {
+        boolean overflow = false;
+        Path dir = keys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            if (dir == null) continue;
+            Path child = dir.resolve((Path) event.context());
+            changed.add(child);
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(child)) {
+                // new artist/album folder: watch it too (its contents are picked up by the index scan)
+                try { registerTree(child); } catch (IOException ignored) {}
+            }
+        }
+        if (!key.reset()) keys.remove(key);
+        return overflow;
+    }
+
+    @Override
+    public void close() {
+        try { watcher.close(); } catch (IOException ignored) {}
+    }
+}
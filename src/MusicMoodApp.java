@@ -1,35 +1,110 @@
 import javax.swing.*;
 import javax.swing.event.ChangeEvent;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.plaf.basic.BasicSliderUI;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.sound.sampled.*;
 
 import com.formdev.flatlaf.FlatDarkLaf;
 
-// Custom JPanel with alpha transparency support for animations
+// Custom JPanel with alpha transparency support for animations.
+// A fade doesn't repaint the live component tree on every frame: the panel is rendered once into
+// an offscreen image (in device pixels) and each frame only blends that image, optionally over
+// a backdrop image for a cross-fade. Live painting resumes when the fade ends.
 class AlphaPanel extends JPanel {
-    private float alpha = 1f;
+    private final Animator.Value alpha = new Animator.Value(this, 1f);
+    private boolean fading;
+    private boolean rendering;          // painting into the snapshot, at full opacity
+    private BufferedImage snapshot;     // of this panel, taken on the first frame of a fade
+    private Image backdrop;
+    private FrameStats stats;
 
     public AlphaPanel(LayoutManager layout) {
         super(layout);
         setOpaque(false);
     }
 
+    // animates alpha from -> to over millis, blending a snapshot of the panel over backdrop
+    // (if not null); then runs after the panel paints live again
+    void fade(float from, float to, int millis, Image backdrop, Runnable then) {
+        fading = true;
+        snapshot = null;
+        this.backdrop = backdrop;
+        stats = new FrameStats("fade " + getName(), getGraphicsConfiguration());
+        alpha.set(from);
+        alpha.animateTo(to, Math.abs(to - from) * 1000f / millis, () -> {
+            fading = false;
+            snapshot = null;
+            this.backdrop = null;
+            stats.report();
+            repaint();
+            if (then != null) then.run();
+        });
+        repaint();
+    }
+
+    // the panel as it looks now at full opacity, e.g. as the backdrop of another panel's fade
+    BufferedImage snapshot() {
+        validate();
+        int w = getWidth(), h = getHeight();
+        if (w <= 0 || h <= 0) return null;
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        double sx = gc != null ? gc.getDefaultTransform().getScaleX() : 1;
+        double sy = gc != null ? gc.getDefaultTransform().getScaleY() : 1;
+        int iw = (int) Math.ceil(w * sx), ih = (int) Math.ceil(h * sy);
+        // a compatible image is kept in video memory by Java2D once it stops changing
+        BufferedImage img = gc != null ? gc.createCompatibleImage(iw, ih, Transparency.TRANSLUCENT)
+                : new BufferedImage(iw, ih, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = img.createGraphics();
+        g.scale(sx, sy);
+        rendering = true;
+        try {
+            super.paint(g);
+        } finally {
+            rendering = false;
+            g.dispose();
+        }
+        return img;
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        if (!fading) {
+            super.paint(g);
+            return;
+        }
+        long start = System.nanoTime();
+        int w = getWidth(), h = getHeight();
+        if (snapshot == null) snapshot = snapshot();
+        Graphics2D g2 = (Graphics2D) g.create();
+        if (backdrop != null) g2.drawImage(backdrop, 0, 0, w, h, null);
+        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha.get()));
+        if (snapshot != null) g2.drawImage(snapshot, 0, 0, w, h, null);
+        g2.dispose();
+        stats.frame(start, System.nanoTime());
+    }
+
     public void setAlpha(float alpha) {
-        this.alpha = Math.max(0f, Math.min(1f, alpha));
+        this.alpha.set(Math.max(0f, Math.min(1f, alpha)));
     }
 
     public float getAlpha() {
-        return alpha;
+        return alpha.get();
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         Graphics2D g2 = (Graphics2D) g;
         Composite oldComposite = g2.getComposite();
-        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, rendering ? 1f : alpha.get()));
         super.paintComponent(g);
         g2.setComposite(oldComposite);
     }
@@ -38,7 +113,7 @@ class AlphaPanel extends JPanel {
     public void paintChildren(Graphics g) {
         Graphics2D g2 = (Graphics2D) g;
         Composite oldComposite = g2.getComposite();
-        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, rendering ? 1f : alpha.get()));
         super.paintChildren(g);
         g2.setComposite(oldComposite);
     }
@@ -50,60 +125,110 @@ public class MusicMoodApp extends JFrame {
     private JPanel mainPanel;
     private AlphaPanel moodPanel, musicPanel;
 
-    private Clip clip;
-    private FloatControl volumeControl;
-    private boolean isPaused = false;
-    private long pausedPosition = 0;
-
-    // MP3 playback variables
-    private boolean isMp3Mode = false;
-    private SourceDataLine mp3Line;
-    private Thread mp3Thread;
-    private volatile boolean mp3StopRequested = false;
-    private volatile boolean mp3Paused = false;
-    private long mp3TotalMicros = -1;
-    private long mp3PositionMicros = 0;
-    private long mp3TotalBytes = -1;
-    private File currentMp3File;
-    private AudioFormat mp3DecodeFormat;
+    // all audio runs on the engine thread; the UI only sends commands and shows its snapshots
+    private PlaybackEngine engine;
+    private PlaybackEngine.Snapshot playback = new PlaybackEngine.Snapshot(PlaybackEngine.State.STOPPED, -1, null, 0, -1);
 
     private String selectedMood;
     private JList<String> songList;
-    private DefaultListModel<String> listModel;
+    private SongListModel listModel;
+    private JTextField searchField;
+    // over listModel's names; replaced (built on the search thread) whenever they change
+    private CompletableFuture<TitleSearch> titleSearch = CompletableFuture.completedFuture(TitleSearch.EMPTY);
     private File[] currentFiles;
     private int currentIndex = -1;
 
     private ControlButton playBtn, stopBtn, nextBtn, prevBtn, backBtn;
+    private int controlIconSize = 32;   // follows the window size, see updateMusicPanelSizes
     private JLabel nowPlayingLabel;
     private JLabel volLabel;
     private JLabel titleLabel;
     private JLabel moodTitleLabel;
     private JLabel moodSubtitleLabel;
+    private JTextField librarySearchField;
+    private JPopupMenu librarySearchPopup;
     private JSlider volumeSlider;
     private JSlider progressSlider;
-    private javax.swing.Timer progressTimer;
     private boolean seekingProgress = false;
     private JLabel currentTimeLabel;
     private JLabel totalTimeLabel;
     private AlphaPanel songListPanel;
 
-    private boolean isPlaying = false; // true = clip is playing (not paused / not stopped)
+    private boolean isPlaying = false; // true = engine is playing (not paused / not stopped)
 
-    private Clip uiClickClip;
+    private volatile Clip uiClickClip;  // set when the startup thread has loaded it
     private Font customFont;
     private Font musicFont;
+    private FontCache customFonts, musicFonts;
+    private final Ellipsizer ellipsizer = new Ellipsizer(32);
     private boolean isFullscreen = false;
 
-    private final String MUSIC_PATH = "music/";
-    private final String SOUND_PATH = "sounds/click.wav";
-    private final String ICON_PATH = "assets/icons/";
+    private static final String MUSIC_PATH = "music/";
+    // sizes every row of the song list, so it never measures the songs themselves
+    private static final String SONG_PROTOTYPE = "Artist Name - A Fairly Long Song Title (Official Video)";
+    private static final String SOUND_PATH = "sounds/click.wav";
+    private static final String ICON_PATH = "assets/icons/";
+    private static final String LIBRARY_INDEX_PATH = "cache/library.idx";
+    private static final String WAVEFORM_CACHE_PATH = "cache/waveforms/";
+    private static final String[] ICON_FILES = {"play.png", "pause.png", "stop.png", "next.png", "prev.png", "back.png"};
+
+    // what the first screen can do without, loaded on startup threads while Swing initializes
+    private record Preload(CompletableFuture<Font[]> fonts, CompletableFuture<LibraryIndex> library,
+                           CompletableFuture<IconCache> icons, CompletableFuture<Clip> click) {
+        static Preload start() {
+            AtomicInteger threads = new AtomicInteger();
+            ExecutorService startup = Executors.newFixedThreadPool(3, r -> {
+                Thread t = new Thread(r, "startup-thread-" + threads.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            Preload preload = new Preload(
+                    CompletableFuture.supplyAsync(() -> StartupReport.phase("fonts", MusicMoodApp::loadFonts), startup),
+                    CompletableFuture.supplyAsync(() -> StartupReport.phase("library index",
+                            () -> LibraryIndex.load(new File(MUSIC_PATH), new File(LIBRARY_INDEX_PATH))), startup),
+                    CompletableFuture.supplyAsync(() -> StartupReport.phase("icons", MusicMoodApp::loadIcons), startup),
+                    CompletableFuture.supplyAsync(() -> StartupReport.phase("click sound", MusicMoodApp::loadClickSound), startup));
+            startup.shutdown();
+            return preload;
+        }
+    }
+
+    private final Preload preload;
+    private boolean firstFrame;
+
+    private LibraryIndex library;
+    private LibraryAnalyzer analyzer;
+    // moods whose songs changed: from the folder watcher, or a mood opened before it was indexed
+    private MusicFolderWatcher.Listener libraryListener;
+    private WaveformStore waveforms;
+    // every song of every mood, kept up to date on the search thread
+    private final LibrarySearch librarySearch = new LibrarySearch();
+    private Waveform waveform;          // of the current track, null while it's being computed
+    // a track played before the library analysis got to it has its waveform computed right away
+    private final ExecutorService waveformExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "waveform-thread");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "search-thread");
+        t.setDaemon(true);
+        return t;
+    });
 
     public static void main(String[] args) {
-        FlatDarkLaf.setup();
-        SwingUtilities.invokeLater(MusicMoodApp::new);
+        StartupReport.begin();
+        Preload preload = Preload.start();
+        StartupReport.phase("look and feel", () -> { FlatDarkLaf.setup(); });
+        SwingUtilities.invokeLater(() -> new MusicMoodApp(preload));
     }
 
-    public MusicMoodApp() {
+    // Only the mood grid is built before the window shows. The library and engine are set up
+    // after its first frame, and the music panel once the grid has faded in (or when a mood is
+    // opened before that). See StartupReport for the timings.
+    MusicMoodApp(Preload preload) {
+        this.preload = preload;
         setTitle("Music Mood App");
         setSize(1000, 600);
         setDefaultCloseOperation(EXIT_ON_CLOSE);
@@ -114,14 +239,16 @@ public class MusicMoodApp extends JFrame {
         cardLayout = new CardLayout();
         mainPanel = new JPanel(cardLayout);
 
-        loadClickSound();
-        loadCustomFont();
-
-        initMoodPanel();
-        initMusicPanel();
+        // the mood grid is drawn in the custom fonts, so they are waited for (usually loaded by now)
+        Font[] fonts = StartupReport.phase("waiting for fonts", preload.fonts()::join);
+        customFont = fonts[0];
+        musicFont = fonts[1];
+        customFonts = new FontCache(customFont);
+        musicFonts = new FontCache(musicFont != null ? musicFont : customFont);
+        preload.click().thenAccept(clip -> uiClickClip = clip);
 
+        StartupReport.phase("mood panel", this::initMoodPanel);
         mainPanel.add(moodPanel, "mood");
-        mainPanel.add(musicPanel, "music");
         add(mainPanel);
 
         setVisible(true);
@@ -141,6 +268,60 @@ public class MusicMoodApp extends JFrame {
         setFocusable(true);
     }
 
+    // library, analysis, folder watcher and engine; idempotent
+    private void startPlayback() {
+        if (engine != null) return;
+        StartupReport.phase("library + engine", () -> {
+            // index of music/ from the last run, refreshed in the background
+            library = preload.library().join();
+            // new and changed files are analyzed (loudness, mood features) once the index knows them
+            waveforms = new WaveformStore(new File(WAVEFORM_CACHE_PATH));
+            analyzer = new LibraryAnalyzer(library, waveforms);
+            // the global search starts from the saved index and follows the rescan and the watcher
+            searchExecutor.execute(() -> librarySearch.syncAll(library));
+            library.rescanInBackground(() -> {
+                analyzer.analyzeInBackground();
+                searchExecutor.execute(() -> librarySearch.syncAll(library));
+            });
+            libraryListener = moods -> {
+                analyzer.analyzeInBackground();
+                searchExecutor.execute(() -> librarySearch.sync(library, moods));
+                SwingUtilities.invokeLater(() -> onLibraryChanged(moods));
+            };
+            try {
+                MusicFolderWatcher.start(new File(MUSIC_PATH).toPath(), library, libraryListener);
+            } catch (Exception ex) {
+                System.out.println("Cannot watch " + MUSIC_PATH + ": " + ex.getMessage());
+            }
+
+            engine = new PlaybackEngine(library);
+            engine.addListener(new PlaybackEngine.Listener() {
+                @Override
+                public void playbackChanged(PlaybackEngine.Snapshot snapshot) {
+                    SwingUtilities.invokeLater(() -> onPlaybackChanged(snapshot));
+                }
+
+                @Override
+                public void playbackFailed(File track, String message) {
+                    SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(MusicMoodApp.this, message));
+                }
+            });
+        });
+    }
+
+    // the music panel with its sliders and icons; idempotent, ends the startup report
+    private void ensureMusicPanel() {
+        if (musicPanel != null) return;
+        startPlayback();
+        StartupReport.phase("music panel", () -> {
+            initMusicPanel();
+            updateVolume(); // engine starts at the slider's initial value
+            subscribeProgress();
+            mainPanel.add(musicPanel, "music");
+        });
+        StartupReport.finish();
+    }
+
     private void toggleFullscreen() {
         isFullscreen = !isFullscreen;
 
@@ -163,7 +344,9 @@ public class MusicMoodApp extends JFrame {
 
     // ================= FONT =================
 
-    private void loadCustomFont() {
+    // {customFont, musicFont}; runs on a startup thread
+    private static Font[] loadFonts() {
+        Font customFont, musicFont = null;
         try {
             File fontFile = new File("fonts/NewFont.ttf");
             if (fontFile.exists()) {
@@ -189,35 +372,71 @@ public class MusicMoodApp extends JFrame {
             System.out.println("Failed to load font: " + e.getMessage());
             customFont = new Font("SansSerif", Font.PLAIN, 20);
         }
+        return new Font[] {customFont, musicFont};
     }
 
     private Font fPlain(float size) {
-        return (customFont != null ? customFont.deriveFont(Font.PLAIN, size)
-                : new Font("SansSerif", Font.PLAIN, (int) size));
+        return customFonts.get(Font.PLAIN, size);
     }
 
     private Font fBold(float size) {
-        return (customFont != null ? customFont.deriveFont(Font.BOLD, size)
-                : new Font("SansSerif", Font.BOLD, (int) size));
+        return customFonts.get(Font.BOLD, size);
+    }
+
+    // FontV2 where available, for the music page
+    private Font fMusic(float size) {
+        return musicFonts.get(Font.PLAIN, size);
+    }
+
+    // ================= RESIZING =================
+
+    private static final int RESIZE_COALESCE_MS = 50;
+
+    // Runs update at most once per RESIZE_COALESCE_MS while the component keeps being resized
+    // (and once after the last event), instead of on every event of a window drag.
+    private static void onResize(Component c, Runnable update) {
+        Timer timer = new Timer(RESIZE_COALESCE_MS, e -> update.run());
+        timer.setRepeats(false);
+        c.addComponentListener(new java.awt.event.ComponentAdapter() {
+            @Override
+            public void componentResized(java.awt.event.ComponentEvent e) {
+                if (!timer.isRunning()) timer.start();
+            }
+        });
     }
 
+    // what the resize handlers set, with font sizes in FontCache buckets; only the parts that
+    // differ from the last applied layout touch their components
+    private record MoodLayout(float titleSize, float subtitleSize, float buttonSize) {}
+
+    private record MusicLayout(float titleSize, float volSize, float listSize, int buttonSize, int iconSize,
+                               float labelSize, int volumeWidth, int progressWidth, float timeSize) {}
+
+    private MoodLayout moodLayout;
+    private MusicLayout musicLayout;
+
     // ================= CLICK SOUND =================
 
-    private void loadClickSound() {
+    // runs on a startup thread; null if there's no sound file or no audio device
+    private static Clip loadClickSound() {
         try {
             File soundFile = new File(SOUND_PATH);
-            if (!soundFile.exists()) return;
+            if (!soundFile.exists()) return null;
             AudioInputStream ais = AudioSystem.getAudioInputStream(soundFile);
-            uiClickClip = AudioSystem.getClip();
-            uiClickClip.open(ais);
-        } catch (Exception ignored) {}
+            Clip clip = AudioSystem.getClip();
+            clip.open(ais);
+            return clip;
+        } catch (Exception ignored) {
+            return null;
+        }
     }
 
     private void playClickSound() {
-        if (uiClickClip == null) return;
-        if (uiClickClip.isRunning()) uiClickClip.stop();
-        uiClickClip.setFramePosition(0);
-        uiClickClip.start();
+        Clip clip = uiClickClip;
+        if (clip == null) return;
+        if (clip.isRunning()) clip.stop();
+        clip.setFramePosition(0);
+        clip.start();
     }
 
     // ================= MOOD PANEL =================
@@ -234,8 +453,14 @@ public class MusicMoodApp extends JFrame {
                 g2.setPaint(gp);
                 g2.fillRect(0, 0, w, h);
                 super.paintComponent(g);
+                if (!firstFrame) {
+                    firstFrame = true;
+                    StartupReport.mark("first frame");
+                    SwingUtilities.invokeLater(MusicMoodApp.this::startPlayback);
+                }
             }
         };
+        moodPanel.setName("mood");
 
         moodTitleLabel = new JLabel("Music Mood App", SwingConstants.CENTER);
         moodTitleLabel.setForeground(Color.WHITE);
@@ -251,6 +476,31 @@ public class MusicMoodApp extends JFrame {
         top.add(moodTitleLabel);
         top.add(moodSubtitleLabel);
 
+        // search over the songs of every mood; a hit opens its mood and plays it
+        librarySearchField = new JTextField(28);
+        librarySearchField.putClientProperty("JTextField.placeholderText", "Search all moods");
+        librarySearchField.putClientProperty("JTextField.showClearButton", true);
+        librarySearchField.setFont(fPlain(18f));
+        librarySearchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { showLibraryHits(); }
+            @Override public void removeUpdate(DocumentEvent e) { showLibraryHits(); }
+            @Override public void changedUpdate(DocumentEvent e) { showLibraryHits(); }
+        });
+        // Enter plays the best hit
+        librarySearchField.addActionListener(e -> {
+            if (librarySearchPopup.getComponentCount() > 0) ((JMenuItem) librarySearchPopup.getComponent(0)).doClick();
+        });
+        librarySearchPopup = new JPopupMenu();
+        librarySearchPopup.setFocusable(false); // typing goes on in the field
+        JPanel searchRow = new JPanel(new FlowLayout(FlowLayout.CENTER, 0, 0));
+        searchRow.setOpaque(false);
+        searchRow.add(librarySearchField);
+
+        JPanel header = new JPanel(new BorderLayout());
+        header.setOpaque(false);
+        header.add(top, BorderLayout.CENTER);
+        header.add(searchRow, BorderLayout.SOUTH);
+
         JPanel grid = new JPanel(new GridLayout(2, 3, 25, 25));
         grid.setOpaque(false);
         grid.setBorder(BorderFactory.createEmptyBorder(40, 80, 40, 80));
@@ -262,16 +512,11 @@ public class MusicMoodApp extends JFrame {
         grid.add(createMoodButton("Love", new Color(255, 80, 160)));
         grid.add(createMoodButton("Focus", new Color(130, 220, 150)));
 
-        moodPanel.add(top, BorderLayout.NORTH);
+        moodPanel.add(header, BorderLayout.NORTH);
         moodPanel.add(grid, BorderLayout.CENTER);
 
         // Add resize listener to update button font sizes dynamically
-        moodPanel.addComponentListener(new java.awt.event.ComponentAdapter() {
-            @Override
-            public void componentResized(java.awt.event.ComponentEvent e) {
-                updateMoodButtonFonts(grid);
-            }
-        });
+        onResize(moodPanel, () -> updateMoodButtonFonts(grid));
     }
 
     private void updateMoodButtonFonts(JPanel grid) {
@@ -281,27 +526,68 @@ public class MusicMoodApp extends JFrame {
 
         // Scale based on both dimensions
         float scale = Math.min(panelWidth / 1000f, panelHeight / 600f);
+        MoodLayout layout = new MoodLayout(
+                FontCache.bucket(Math.max(24f, Math.min(48f, 48f * scale))),
+                FontCache.bucket(Math.max(16f, Math.min(26f, 26f * scale))),
+                FontCache.bucket(Math.max(16f, Math.min(40f, 40f * scale))));
+        MoodLayout old = moodLayout;
+        if (layout.equals(old)) return;
+        moodLayout = layout;
 
         // Update title and subtitle
-        if (moodTitleLabel != null) {
-            float titleSize = Math.max(24f, Math.min(48f, 48f * scale));
-            moodTitleLabel.setFont(fBold(titleSize));
-        }
-        if (moodSubtitleLabel != null) {
-            float subtitleSize = Math.max(16f, Math.min(26f, 26f * scale));
-            moodSubtitleLabel.setFont(fPlain(subtitleSize));
+        if (old == null || layout.titleSize() != old.titleSize()) moodTitleLabel.setFont(fBold(layout.titleSize()));
+        if (old == null || layout.subtitleSize() != old.subtitleSize()) {
+            moodSubtitleLabel.setFont(fPlain(layout.subtitleSize()));
+            librarySearchField.setFont(fPlain(layout.subtitleSize() * 0.7f));
         }
 
         // Update mood button fonts
-        float baseFontSize = Math.max(16f, Math.min(40f, 40f * scale));
-
-        for (Component comp : grid.getComponents()) {
-            if (comp instanceof MoodButton) {
-                ((MoodButton) comp).setFont(fBold(baseFontSize));
+        if (old == null || layout.buttonSize() != old.buttonSize()) {
+            for (Component comp : grid.getComponents()) {
+                if (comp instanceof MoodButton) {
+                    ((MoodButton) comp).setFont(fBold(layout.buttonSize()));
+                }
             }
         }
     }
 
+    private static final int LIBRARY_HITS = 8;
+
+    // the best matches for the search field, in a popup under it
+    private void showLibraryHits() {
+        String query = librarySearchField.getText();
+        java.util.List<LibrarySearch.Hit> hits = query.isBlank() ? java.util.List.of() : librarySearch.find(query, LIBRARY_HITS);
+        librarySearchPopup.removeAll();
+        if (hits.isEmpty()) {
+            librarySearchPopup.setVisible(false);
+            return;
+        }
+        int maxWidth = Math.max(300, librarySearchField.getWidth() * 2);
+        for (LibrarySearch.Hit hit : hits) {
+            JMenuItem item = new JMenuItem();
+            FontMetrics fm = item.getFontMetrics(item.getFont());
+            item.setText(ellipsizer.fit(hit.name(), fm, maxWidth) + "   (" + hit.mood() + ")");
+            item.addActionListener(e -> playSearchHit(hit));
+            librarySearchPopup.add(item);
+        }
+        if (librarySearchPopup.isVisible()) librarySearchPopup.pack();
+        else librarySearchPopup.show(librarySearchField, 0, librarySearchField.getHeight());
+    }
+
+    // opens the hit's mood and plays the song
+    private void playSearchHit(LibrarySearch.Hit hit) {
+        if (library == null) return;
+        librarySearchField.setText("");
+        playClickSound();
+        openMood(hit.mood());
+        if (currentFiles == null) return;
+        int index = java.util.Arrays.binarySearch(currentFiles, hit.file(),
+                (a, b) -> LibraryIndex.PATH_ORDER.compare(a.getPath(), b.getPath()));
+        if (index < 0) return;
+        currentIndex = index;
+        playCurrentIndex();
+    }
+
     private MoodButton createMoodButton(String text, Color baseColor) {
         MoodButton btn = new MoodButton(text, baseColor);
         // Calculate responsive font size based on window height
@@ -314,96 +600,6 @@ public class MusicMoodApp extends JFrame {
         return btn;
     }
 
-    private class MoodButton extends JButton {
-        private final Color baseColor;
-        private float glow = 0f;
-        private Timer timer;
-        private float pressScale = 1f;
-        private Timer pressTimer;
-
-        MoodButton(String text, Color baseColor) {
-            super(text);
-            this.baseColor = baseColor;
-            setFocusPainted(false);
-            setContentAreaFilled(false);
-            setOpaque(false);
-            setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
-
-            addMouseListener(new MouseAdapter() {
-                @Override public void mouseEntered(MouseEvent e) { startGlow(true); }
-                @Override public void mouseExited(MouseEvent e) { startGlow(false); }
-                @Override public void mousePressed(MouseEvent e) { animatePressDown(); }
-                @Override public void mouseReleased(MouseEvent e) { animatePressUp(); }
-            });
-        }
-
-        @Override
-        protected void paintComponent(Graphics g) {
-            Graphics2D g2 = (Graphics2D) g;
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            int w = getWidth(), h = getHeight();
-
-            // Apply press scale
-            int scaledW = (int) (w * pressScale);
-            int scaledH = (int) (h * pressScale);
-            int x = (w - scaledW) / 2;
-            int y = (h - scaledH) / 2;
-
-            GradientPaint gp = new GradientPaint(x, y, baseColor.brighter(), x, y + scaledH, baseColor.darker());
-            g2.setPaint(gp);
-            g2.fillRoundRect(x, y, scaledW, scaledH, 40, 40);
-
-            if (glow > 0f) {
-                g2.setColor(new Color(baseColor.getRed(), baseColor.getGreen(), baseColor.getBlue(), (int) (120 * glow)));
-                g2.setStroke(new BasicStroke(4f * glow));
-                g2.drawRoundRect(x - 2, y - 2, scaledW + 4, scaledH + 4, 40, 40);
-            }
-
-            g2.setColor(Color.BLACK);
-            FontMetrics fm = g2.getFontMetrics(getFont());
-            int tw = fm.stringWidth(getText());
-            int th = fm.getAscent();
-            g2.drawString(getText(), (w - tw) / 2, (h + th / 2) / 2);
-        }
-
-        private void startGlow(boolean in) {
-            if (timer != null && timer.isRunning()) timer.stop();
-            timer = new Timer(15, e -> {
-                glow += in ? 0.08f : -0.08f;
-                if (glow < 0f) { glow = 0f; timer.stop(); }
-                if (glow > 1f) { glow = 1f; timer.stop(); }
-                repaint();
-            });
-            timer.start();
-        }
-
-        private void animatePressDown() {
-            if (pressTimer != null && pressTimer.isRunning()) pressTimer.stop();
-            pressTimer = new Timer(20, e -> {
-                pressScale -= 0.08f;
-                if (pressScale < 0.9f) {
-                    pressScale = 0.9f;
-                    pressTimer.stop();
-                }
-                repaint();
-            });
-            pressTimer.start();
-        }
-
-        private void animatePressUp() {
-            if (pressTimer != null && pressTimer.isRunning()) pressTimer.stop();
-            pressTimer = new Timer(20, e -> {
-                pressScale += 0.1f;
-                if (pressScale > 1f) {
-                    pressScale = 1f;
-                    pressTimer.stop();
-                }
-                repaint();
-            });
-            pressTimer.start();
-        }
-    }
-
     // ================= MUSIC PANEL =================
 
     private void initMusicPanel() {
@@ -420,19 +616,44 @@ public class MusicMoodApp extends JFrame {
             }
         };
 
+        musicPanel.setName("music");
+
         titleLabel = new JLabel("Select a song", SwingConstants.CENTER);
         titleLabel.setForeground(Color.WHITE);
         // revert: use the app's configured bold font for consistency
         titleLabel.setFont(fBold(48f));
 
-        listModel = new DefaultListModel<>();
+        listModel = new SongListModel();
         songList = new JList<>(listModel);
         songList.setBackground(new Color(25, 25, 30));
         songList.setForeground(Color.WHITE);
         songList.setSelectionBackground(new Color(0x1DB954));
         songList.setSelectionForeground(Color.BLACK);
-        if (musicFont != null) songList.setFont(musicFont.deriveFont(Font.PLAIN, 22f));
-        else songList.setFont(fPlain(22f));
+        songList.setFont(fMusic(22f));
+        // fixed row size: layout and scrolling don't depend on the number of songs
+        songList.setPrototypeCellValue(SONG_PROTOTYPE);
+
+        // type-ahead search over the open mood's titles
+        searchField = new JTextField();
+        searchField.putClientProperty("JTextField.placeholderText", "Search songs");
+        searchField.putClientProperty("JTextField.showClearButton", true);
+        searchField.setFont(fMusic(22f));
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { applySearch(); }
+            @Override public void removeUpdate(DocumentEvent e) { applySearch(); }
+            @Override public void changedUpdate(DocumentEvent e) { applySearch(); }
+        });
+        // Enter plays the selected match, or the first one
+        searchField.addActionListener(e -> {
+            if (listModel.getSize() == 0) return;
+            if (songList.getSelectedIndex() < 0) songList.setSelectedIndex(0);
+            playClickSound();
+            playSelectedFromList();
+        });
+        JPanel searchWrap = new JPanel(new BorderLayout());
+        searchWrap.setOpaque(false);
+        searchWrap.setBorder(BorderFactory.createEmptyBorder(10, 40, 0, 40));
+        searchWrap.add(searchField, BorderLayout.CENTER);
 
         JScrollPane scrollPane = new JScrollPane(songList);
         scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 40, 10, 40));
@@ -454,8 +675,18 @@ public class MusicMoodApp extends JFrame {
                 super.paintComponent(g);
             }
         };
+        songListPanel.add(searchWrap, BorderLayout.NORTH);
         songListPanel.add(scrollPane, BorderLayout.CENTER);
 
+        // spectrum of what's playing, in the strip under the list
+        SpectrumVisualizer spectrum = new SpectrumVisualizer(engine.sampleTap());
+        spectrum.setPreferredSize(new Dimension(400, 72));
+        JPanel spectrumWrap = new JPanel(new BorderLayout());
+        spectrumWrap.setOpaque(false);
+        spectrumWrap.setBorder(BorderFactory.createEmptyBorder(0, 40, 10, 40));
+        spectrumWrap.add(spectrum, BorderLayout.CENTER);
+        songListPanel.add(spectrumWrap, BorderLayout.SOUTH);
+
         // ==== bottom bar ====
         JPanel bottom = new JPanel(new BorderLayout());
         bottom.setOpaque(false);
@@ -482,8 +713,7 @@ public class MusicMoodApp extends JFrame {
         nowPlayingLabel = new JLabel("Now playing: -");
         nowPlayingLabel.setForeground(Color.WHITE);
         // use FontV2 if available for Now playing text
-        if (musicFont != null) nowPlayingLabel.setFont(musicFont.deriveFont(Font.PLAIN, 18f));
-        else nowPlayingLabel.setFont(fPlain(18f));
+        nowPlayingLabel.setFont(fMusic(18f));
         nowPlayingLabel.setPreferredSize(new Dimension(500, 36));
         nowPlayingLabel.setMaximumSize(new Dimension(Short.MAX_VALUE, 36));
         nowPlayingLabel.setHorizontalAlignment(SwingConstants.LEFT);
@@ -493,8 +723,7 @@ public class MusicMoodApp extends JFrame {
         volLabel = new JLabel("Vol");
         volLabel.setForeground(Color.WHITE);
         // use FontV2 for the volume label if available
-        if (musicFont != null) volLabel.setFont(musicFont.deriveFont(Font.PLAIN, 18f));
-        else volLabel.setFont(fPlain(18f));
+        volLabel.setFont(fMusic(18f));
 
         volumeSlider = new JSlider(0, 100, 80);
         volumeSlider.setPreferredSize(new Dimension(150, 22));
@@ -510,31 +739,37 @@ public class MusicMoodApp extends JFrame {
         });
 
         volumeSlider.setUI(new BasicSliderUI(volumeSlider) {
+            // states: 0 the dark track, 1 the filled track, 2 the filled track hovered
+            private final Sprite track = new Sprite(volumeSlider, 3, (g, w, h, state) -> {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setColor(state == 0 ? new Color(40, 40, 40) : state == 2 ? new Color(40, 255, 120) : new Color(30, 215, 96));
+                g.fillRoundRect(0, 0, w, h, h, h);
+            });
+            // states: 0 normal, 1 hovered
+            private final Sprite thumb = new Sprite(volumeSlider, 2, (g, w, h, state) -> {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setColor(state == 1 ? new Color(40, 255, 120) : new Color(30, 215, 96));
+                g.fillOval(0, 0, w, h);
+            });
+
             @Override
             public void paintTrack(Graphics g) {
                 Graphics2D g2 = (Graphics2D) g;
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
                 int cy = trackRect.y + (trackRect.height / 2) - 3;
                 int cw = trackRect.width;
                 int ch = 8;
-                g2.setColor(new Color(40, 40, 40));
-                g2.fillRoundRect(trackRect.x, cy, cw, ch, ch, ch);
+                track.draw(g2, trackRect.x, cy, cw, ch, 0);
+                // the filled part is cut square; its end is under the thumb
                 int filled = (int) (cw * (slider.getValue() / 100.0));
-                Color fill = hovering[0] ? new Color(40, 255, 120) : new Color(30, 215, 96);
-                g2.setColor(fill);
-                g2.fillRoundRect(trackRect.x, cy, filled, ch, ch, ch);
+                track.drawLeft(g2, trackRect.x, cy, cw, ch, hovering[0] ? 2 : 1, filled);
             }
 
             @Override
             public void paintThumb(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g;
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
                 int size = 16;
                 int x = thumbRect.x + (thumbRect.width - size) / 2;
                 int y = thumbRect.y + (thumbRect.height - size) / 2;
-                Color c = hovering[0] ? new Color(40, 255, 120) : new Color(30, 215, 96);
-                g2.setColor(c);
-                g2.fillOval(x, y, size, size);
+                thumb.draw((Graphics2D) g, x, y, size, size, hovering[0] ? 1 : 0);
             }
         });
 
@@ -554,12 +789,9 @@ public class MusicMoodApp extends JFrame {
             @Override public void mouseReleased(MouseEvent e) {
                 seekingProgress = false;
                 int val = progressSlider.getValue();
-                if (isMp3Mode && mp3TotalMicros > 0) {
-                    long newPos = (long) ((val / 1000.0) * mp3TotalMicros);
-                    mp3SeekTo(newPos);
-                } else if (clip != null && clip.isOpen() && clip.getMicrosecondLength() > 0) {
-                    long newPos = (long) ((val / 1000.0) * clip.getMicrosecondLength());
-                    try { clip.setMicrosecondPosition(newPos); } catch (Exception ignored) {}
+                long len = playback.durationMicros();
+                if (playback.state() != PlaybackEngine.State.STOPPED && len > 0) {
+                    engine.seek((long) ((val / 1000.0) * len));
                 }
             }
         });
@@ -567,12 +799,8 @@ public class MusicMoodApp extends JFrame {
         progressSlider.addChangeListener((ChangeEvent e) -> {
             if (seekingProgress) {
                 int v = progressSlider.getValue();
-                if (isMp3Mode && mp3TotalMicros > 0) {
-                    long len = mp3TotalMicros;
-                    long pos = (long) ((v / 1000.0) * len);
-                    progressSlider.setToolTipText(formatTime(pos) + " / " + formatTime(len));
-                } else if (clip != null && clip.isOpen() && clip.getMicrosecondLength() > 0) {
-                    long len = clip.getMicrosecondLength();
+                long len = playback.durationMicros();
+                if (playback.state() != PlaybackEngine.State.STOPPED && len > 0) {
                     long pos = (long) ((v / 1000.0) * len);
                     progressSlider.setToolTipText(formatTime(pos) + " / " + formatTime(len));
                 }
@@ -581,48 +809,113 @@ public class MusicMoodApp extends JFrame {
 
         // Custom UI for the progress slider with gradient and modern look
         progressSlider.setUI(new BasicSliderUI(progressSlider) {
+            // the waveform drawn once in both colours; a repaint only copies the two halves
+            private Waveform imageSource;
+            private BufferedImage playedImage, unplayedImage;
+            private GraphicsConfiguration scaleSource;
+            private double scale = 1;
+
+            // states: 0 the dark track, 1 the played part's gradient
+            private final Sprite track = new Sprite(progressSlider, 2, (g, w, h, state) -> {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                if (state == 0) g.setColor(new Color(40, 40, 40));
+                else g.setPaint(new GradientPaint(0, 0, new Color(30, 215, 96), w, 0, new Color(0, 180, 70)));
+                g.fillRoundRect(0, 0, w, h, h, h);
+            });
+            // the gradient thumb and its glow ring, THUMB_SIZE plus a margin for the ring
+            private static final int THUMB_SIZE = 18, THUMB_MARGIN = 4;
+            private final Sprite thumb = new Sprite(progressSlider, 1, (g, w, h, state) -> {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                int x = THUMB_MARGIN, y = THUMB_MARGIN, size = THUMB_SIZE;
+                g.setPaint(new GradientPaint(x, y, new Color(30, 215, 96), x + size, y + size, new Color(0, 180, 70)));
+                g.fillOval(x, y, size, size);
+                // Glow effect
+                g.setColor(new Color(30, 215, 96, 100));
+                g.setStroke(new BasicStroke(2f));
+                g.drawOval(x - 2, y - 2, size + 4, size + 4);
+            });
+
             @Override
             public void paintTrack(Graphics g) {
                 Graphics2D g2 = (Graphics2D) g;
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                Waveform w = waveform;
+                if (w != null) {
+                    paintWaveform(g2, w);
+                    return;
+                }
                 int cy = trackRect.y + (trackRect.height / 2) - 4;
                 int cw = trackRect.width;
                 int ch = 8;
+                track.draw(g2, trackRect.x, cy, cw, ch, 0);
 
-                // Background track (dark)
-                g2.setColor(new Color(40, 40, 40));
-                g2.fillRoundRect(trackRect.x, cy, cw, ch, ch, ch);
-
-                // Gradient fill for played portion
+                // Gradient fill for played portion, spanning the whole track; its end is under the thumb
                 int filled = (int) (cw * (slider.getValue() / 1000.0));
-                GradientPaint gp = new GradientPaint(
-                        trackRect.x, cy, new Color(30, 215, 96),
-                        trackRect.x + filled, cy, new Color(0, 180, 70)
-                );
-                g2.setPaint(gp);
-                g2.fillRoundRect(trackRect.x, cy, filled, ch, ch, ch);
+                track.drawLeft(g2, trackRect.x, cy, cw, ch, 1, filled);
+            }
+
+            private void paintWaveform(Graphics2D g2, Waveform w) {
+                int width = trackRect.width, height = slider.getHeight();
+                if (width <= 0 || height <= 0) return;
+                double scale = screenScale(); // HiDPI: one bar per device pixel
+                int iw = (int) Math.ceil(width * scale), ih = (int) Math.ceil(height * scale);
+                if (w != imageSource || playedImage == null || playedImage.getWidth() != iw || playedImage.getHeight() != ih) {
+                    playedImage = renderWaveform(w, iw, ih, new Color(30, 215, 96), new Color(0, 180, 70));
+                    unplayedImage = renderWaveform(w, iw, ih, new Color(90, 90, 90), new Color(70, 70, 70));
+                    imageSource = w;
+                }
+                // the two halves copied straight from their images, without changing the clip
+                int filled = (int) (width * (slider.getValue() / 1000.0));
+                int split = (int) Math.round(filled * scale);
+                int x = trackRect.x;
+                g2.drawImage(playedImage, x, 0, x + filled, height, 0, 0, split, ih, null);
+                g2.drawImage(unplayedImage, x + filled, 0, x + width, height, split, 0, iw, ih, null);
+            }
+
+            // looked up again only when the slider moves to another screen
+            private double screenScale() {
+                GraphicsConfiguration gc = slider.getGraphicsConfiguration();
+                if (gc != scaleSource) {
+                    scaleSource = gc;
+                    scale = gc != null ? gc.getDefaultTransform().getScaleX() : 1;
+                }
+                return scale;
+            }
+
+            // mirrored bars around the middle: peak faint, RMS solid, from the level closest to one bucket per column
+            private BufferedImage renderWaveform(Waveform w, int width, int height, Color start, Color end) {
+                BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D ig = img.createGraphics();
+                ig.setPaint(new GradientPaint(0, 0, start, width, 0, end));
+                int level = w.levelFor(width);
+                byte[] peaks = w.peaks[level], rms = w.rms[level];
+                float mid = height / 2f;
+                Composite solid = ig.getComposite();
+                Composite faint = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.45f);
+                for (int x = 0; x < width; x++) {
+                    int from = (int) ((long) x * peaks.length / width);
+                    int to = Math.max(from + 1, (int) ((long) (x + 1) * peaks.length / width));
+                    int peak = 0, rmsLevel = 0;
+                    for (int b = from; b < to; b++) {
+                        peak = Math.max(peak, Waveform.unsigned(peaks[b]));
+                        rmsLevel = Math.max(rmsLevel, Waveform.unsigned(rms[b]));
+                    }
+                    int ph = Math.max(1, Math.round(peak / 255f * mid));
+                    int rh = Math.max(1, Math.round(rmsLevel / 255f * mid));
+                    ig.setComposite(faint);
+                    ig.fillRect(x, Math.round(mid - ph), 1, 2 * ph);
+                    ig.setComposite(solid);
+                    ig.fillRect(x, Math.round(mid - rh), 1, 2 * rh);
+                }
+                ig.dispose();
+                return img;
             }
 
             @Override
             public void paintThumb(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g;
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                int size = 18;
+                int size = THUMB_SIZE + 2 * THUMB_MARGIN;
                 int x = thumbRect.x + (thumbRect.width - size) / 2;
                 int y = thumbRect.y + (thumbRect.height - size) / 2;
-
-                // Gradient thumb
-                GradientPaint thumbGradient = new GradientPaint(
-                        x, y, new Color(30, 215, 96),
-                        x + size, y + size, new Color(0, 180, 70)
-                );
-                g2.setPaint(thumbGradient);
-                g2.fillOval(x, y, size, size);
-
-                // Glow effect
-                g2.setColor(new Color(30, 215, 96, 100));
-                g2.setStroke(new BasicStroke(2f));
-                g2.drawOval(x - 2, y - 2, size + 4, size + 4);
+                thumb.draw((Graphics2D) g, x, y, size, size, 0);
             }
         });
 
@@ -685,13 +978,10 @@ public class MusicMoodApp extends JFrame {
         centerPanel.add(rightInfo, BorderLayout.EAST);
 
         // Add resize listener to update "Now playing" label when window size changes
-        centerPanel.addComponentListener(new java.awt.event.ComponentAdapter() {
-            @Override
-            public void componentResized(java.awt.event.ComponentEvent e) {
-                // Re-update the label when the panel is resized (e.g., fullscreen)
-                if (clip != null && clip.isOpen() && currentFiles != null && currentIndex >= 0) {
-                    updateNowPlayingLabel(currentFiles[currentIndex].getName());
-                }
+        onResize(centerPanel, () -> {
+            // Re-update the label when the panel is resized (e.g., fullscreen)
+            if (playback.track() != null) {
+                updateNowPlayingLabel(playback.track().getName());
             }
         });
 
@@ -721,18 +1011,12 @@ public class MusicMoodApp extends JFrame {
         });
         playBtn.addActionListener(e -> {
             playClickSound();
-            if (clip == null && !isMp3Mode) playSelectedFromList();
+            if (playback.state() == PlaybackEngine.State.STOPPED) playSelectedFromList();
             else pauseOrResume();
-            playBtn.setIcon(loadButtonIcon(ControlButton.Type.PLAY_PAUSE));
         });
 
         // Add resize listener to make all elements responsive
-        musicPanel.addComponentListener(new java.awt.event.ComponentAdapter() {
-            @Override
-            public void componentResized(java.awt.event.ComponentEvent e) {
-                updateMusicPanelSizes();
-            }
-        });
+        onResize(musicPanel, this::updateMusicPanelSizes);
     }
 
 
@@ -759,29 +1043,26 @@ public class MusicMoodApp extends JFrame {
     }
 
     private ImageIcon loadButtonIcon(ControlButton.Type type) {
-        String file;
-        switch (type) {
-            case PLAY_PAUSE -> file = isPlaying ? "pause.png" : "play.png";
-            case STOP -> file = "stop.png";
-            case NEXT -> file = "next.png";
-            case PREV -> file = "prev.png";
-            case BACK -> file = "back.png";
-            default -> file = "play.png";
-        }
-        File f = new File(ICON_PATH + file);
-        if (!f.exists()) {
-            System.out.println("Missing icon: " + f.getPath());
-            return new ImageIcon();
-        }
-        Image img = new ImageIcon(f.getAbsolutePath()).getImage()
-                .getScaledInstance(32, 32, Image.SCALE_SMOOTH);
-        return new ImageIcon(img);
+        return loadButtonIconWithSize(type, controlIconSize);
+    }
+
+    // decoded, and scaled for the size the buttons start at; runs on a startup thread
+    private static IconCache loadIcons() {
+        IconCache icons = new IconCache(ICON_PATH, ICON_FILES);
+        double scale = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().getDefaultTransform().getScaleX();
+        for (String name : ICON_FILES) icons.get(name, 32, scale);
+        return icons;
     }
 
+    // The background and glow of a press are sprites for PRESS_LEVELS steps of the animation,
+    // so a repaint copies one image and the icon
     private static class ControlButton extends JButton {
         enum Type { PREV, PLAY_PAUSE, NEXT, STOP, BACK }
-        private float pressAnimation = 0f;
-        private Timer pressTimer;
+        private static final int PRESS_LEVELS = 16;
+        private final Animator.Value pressAnimation = new Animator.Value(this, 0f);
+        private final Sprite chrome = new Sprite(this, PRESS_LEVELS + 1,
+                (g, w, h, level) -> paintChrome(g, w, h, level / (float) PRESS_LEVELS));
 
         ControlButton(Type type) {}
 
@@ -789,11 +1070,32 @@ public class MusicMoodApp extends JFrame {
         protected void paintComponent(Graphics g) {
             Graphics2D g2 = (Graphics2D) g;
             g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            int w = getWidth(), h = getHeight();
+            float easedPress = eased(pressAnimation.get());
+            int level = Math.round(easedPress * PRESS_LEVELS);
+            chrome.draw(g2, 0, 0, w, h, level);
+
+            // Draw the icon centered in the scaled-down button
+            Icon icon = getIcon();
+            if (icon != null) {
+                float scale = 1f - (level / (float) PRESS_LEVELS * 0.15f);
+                int scaledW = (int) (w * scale);
+                int scaledH = (int) (h * scale);
+                int iconX = (w - scaledW) / 2 + (scaledW - icon.getIconWidth()) / 2;
+                int iconY = (h - scaledH) / 2 + (scaledH - icon.getIconHeight()) / 2;
+                icon.paintIcon(this, g2, iconX, iconY);
+            }
+        }
+
+        private static float eased(float press) {
+            return press * press * (3f - 2f * press); // smooth easing
+        }
+
+        private static void paintChrome(Graphics2D g2, int w, int h, float easedPress) {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-            // Apply scale animation on press with smooth easing
-            float easedPress = pressAnimation * pressAnimation * (3f - 2f * pressAnimation); // smooth easing
+            // Apply scale animation on press
             float scale = 1f - (easedPress * 0.15f); // scale down 15% max
-            int w = getWidth(), h = getHeight();
             int scaledW = (int) (w * scale);
             int scaledH = (int) (h * scale);
             int x = (w - scaledW) / 2;
@@ -806,149 +1108,169 @@ public class MusicMoodApp extends JFrame {
 
             // Draw border/glow with stronger effect
             int glowAlpha = (int) (80 + easedPress * 100);
-            Color glowColor = new Color(30, 215, 96, glowAlpha);
-            g2.setColor(glowColor);
+            g2.setColor(new Color(30, 215, 96, glowAlpha));
             g2.setStroke(new BasicStroke(1.5f + easedPress * 1.5f));
             g2.drawRoundRect(x, y, scaledW, scaledH, 15, 15);
 
             // Outer glow ring
-            g2.setColor(new Color(30, 215, 96, (int) (50 * easedPress)));
-            g2.setStroke(new BasicStroke(1f));
-            g2.drawRoundRect(x - 4, y - 4, scaledW + 8, scaledH + 8, 15, 15);
-
-            // Draw the icon centered
-            Icon icon = getIcon();
-            if (icon != null) {
-                int iconX = x + (scaledW - icon.getIconWidth()) / 2;
-                int iconY = y + (scaledH - icon.getIconHeight()) / 2;
-                icon.paintIcon(this, g2, iconX, iconY);
+            if (easedPress > 0f) {
+                g2.setColor(new Color(30, 215, 96, (int) (50 * easedPress)));
+                g2.setStroke(new BasicStroke(1f));
+                g2.drawRoundRect(x - 4, y - 4, scaledW + 8, scaledH + 8, 15, 15);
             }
         }
 
+        // in over 250 ms, then back out over 200 ms
         void animatePress() {
-            if (pressTimer != null && pressTimer.isRunning()) pressTimer.stop();
-            pressTimer = new Timer(30, e -> {
-                pressAnimation += 0.12f;
-                if (pressAnimation > 1f) {
-                    pressAnimation = 1f;
-                    pressTimer.stop();
-                    // Animate back out
-                    animateRelease();
-                    return;
-                }
-                repaint();
-            });
-            pressTimer.start();
+            pressAnimation.animateTo(1f, 4f, this::animateRelease);
         }
 
         void animateRelease() {
-            if (pressTimer != null && pressTimer.isRunning()) pressTimer.stop();
-            pressTimer = new Timer(30, e -> {
-                pressAnimation -= 0.15f;
-                if (pressAnimation < 0f) {
-                    pressAnimation = 0f;
-                    pressTimer.stop();
-                    return;
-                }
-                repaint();
-            });
-            pressTimer.start();
+            pressAnimation.animateTo(0f, 5f);
         }
     }
 
     // ================= LOGIC PLAYBACK =================
 
     private void openMood(String mood) {
+        ensureMusicPanel();
         selectedMood = mood;
-        listModel.clear();
+        searchField.setText("");
         currentFiles = null;
         currentIndex = -1;
         stopMusic(); // reset when changing mood
 
-        File folder = new File(MUSIC_PATH + mood);
-        if (folder.exists() && folder.isDirectory()) {
-            File[] files = folder.listFiles((d, n) -> {
-                String ln = n.toLowerCase();
-                return ln.endsWith(".wav") || ln.endsWith(".mp3");
-            });
-            if (files != null && files.length > 0) {
-                currentFiles = files;
-                for (File f : files) {
-                    // Remove file extension for display
-                    String name = f.getName();
-                    int dotIndex = name.lastIndexOf('.');
-                    String displayName = (dotIndex > 0) ? name.substring(0, dotIndex) : name;
-                    listModel.addElement(displayName);
-                }
-            } else {
-                JOptionPane.showMessageDialog(this, "No audio files (.wav/.mp3) found for: " + mood);
+        // songs come from the library index (including artist/album subfolders), not a folder listing;
+        // a folder not indexed yet is scanned in the background and fills in via onLibraryChanged
+        boolean scanned = library.isScanned(mood);
+        java.util.List<LibraryIndex.Entry> entries = library.entriesFor(mood, libraryListener);
+        String[] names = new String[entries.size()];
+        if (!entries.isEmpty()) {
+            currentFiles = new File[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                currentFiles[i] = entries.get(i).file;
+                names[i] = entries.get(i).displayName();
             }
-        } else {
-            JOptionPane.showMessageDialog(this, "Folder not found: " + folder.getPath());
+        }
+        listModel.setAll(names);
+        reindexSongs();
+        if (entries.isEmpty() && scanned) { // not scanned yet: no verdict until the scan is in
+            JOptionPane.showMessageDialog(this, library.hasMood(mood)
+                    ? "No audio files (.wav/.mp3) found for: " + mood
+                    : "Folder not found: " + MUSIC_PATH + mood);
         }
 
         // Animate transition to music panel
         animateTransition();
     }
 
+    // Songs added to / removed from the open mood while it is shown: patch listModel and
+    // currentFiles with the minimal inserts/removals, keeping the playing track where it is
+    private void onLibraryChanged(java.util.Set<String> moods) {
+        if (selectedMood == null || !moods.contains(selectedMood)) return;
+        java.util.List<LibraryIndex.Entry> entries = library.entriesFor(selectedMood);
+        File[] old = currentFiles != null ? currentFiles : new File[0];
+        File playing = (currentIndex >= 0 && currentIndex < old.length) ? old[currentIndex] : null;
+
+        // both sides are sorted by path, so a single merge pass finds the runs to remove/insert
+        File[] updated = new File[entries.size()];
+        int i = 0, j = 0, row = 0;
+        boolean changed = false;
+        while (i < old.length || j < updated.length) {
+            int cmp = i == old.length ? 1 : j == updated.length ? -1
+                    : LibraryIndex.PATH_ORDER.compare(old[i].getPath(), entries.get(j).file.getPath());
+            if (cmp == 0) {
+                updated[j] = entries.get(j).file;
+                i++; j++; row++;
+            } else if (cmp < 0) {
+                int start = i;
+                while (i < old.length && (j == updated.length
+                        || LibraryIndex.PATH_ORDER.compare(old[i].getPath(), entries.get(j).file.getPath()) < 0)) i++;
+                listModel.removeRange(row, row + (i - start) - 1);
+                changed = true;
+            } else {
+                java.util.List<String> names = new java.util.ArrayList<>();
+                while (j < updated.length && (i == old.length
+                        || LibraryIndex.PATH_ORDER.compare(old[i].getPath(), entries.get(j).file.getPath()) > 0)) {
+                    updated[j] = entries.get(j).file;
+                    names.add(entries.get(j).displayName());
+                    j++;
+                }
+                listModel.addAll(row, names);
+                row += names.size();
+                changed = true;
+            }
+        }
+        if (!changed) return;
+        currentFiles = updated;
+        reindexSongs();
+
+        if (playing != null) {
+            int pos = java.util.Arrays.binarySearch(updated, playing,
+                    (a, b) -> LibraryIndex.PATH_ORDER.compare(a.getPath(), b.getPath()));
+            // playing file deleted: point just before where it was so "next" continues from there
+            currentIndex = pos >= 0 ? pos : -pos - 2;
+        }
+        engine.updateQueue(currentFiles);
+    }
+
     private void animateTransition() {
-        // Create fade animation when showing music panel
+        // Cross-fade from the mood grid to the music panel
+        BufferedImage from = moodPanel.snapshot();
         musicPanel.setOpaque(false);
-        musicPanel.setAlpha(0f);
-        songListPanel.setAlpha(0f);
         cardLayout.show(mainPanel, "music");
-
-        Timer transitionTimer = new Timer(25, null);
-        transitionTimer.addActionListener(e -> {
-            float alpha = musicPanel.getAlpha();
-            alpha += 0.1f;
-            if (alpha >= 1f) {
-                alpha = 1f;
-                ((Timer) e.getSource()).stop();
-                musicPanel.setOpaque(true);
-            }
-            musicPanel.setAlpha(alpha);
-            songListPanel.setAlpha(alpha);
-            mainPanel.repaint();
-        });
-        transitionTimer.start();
+        musicPanel.fade(0f, 1f, 250, from, () -> musicPanel.setOpaque(true));
     }
 
     private void animateBackTransition() {
-        // Fade out before returning to mood panel
-        Timer fadeOutTimer = new Timer(25, null);
-        fadeOutTimer.addActionListener(e -> {
-            float alpha = musicPanel.getAlpha();
-            alpha -= 0.1f;
-            if (alpha <= 0f) {
-                alpha = 0f;
-                ((Timer) e.getSource()).stop();
-                cardLayout.show(mainPanel, "mood");
-                musicPanel.setAlpha(1f);
-                songListPanel.setAlpha(1f);
-            }
-            musicPanel.setAlpha(alpha);
-            songListPanel.setAlpha(alpha);
-            mainPanel.repaint();
+        // Cross-fade back to the mood grid, which is hidden (but laid out) until the fade ends
+        BufferedImage to = moodPanel.snapshot();
+        musicPanel.setOpaque(false);
+        musicPanel.fade(1f, 0f, 250, to, () -> {
+            cardLayout.show(mainPanel, "mood");
+            musicPanel.setAlpha(1f);
         });
-        fadeOutTimer.start();
     }
 
     private void animateMoodPanelIn() {
-        // Fade in the mood panel on app startup
-        moodPanel.setAlpha(0f);
-        Timer fadeInTimer = new Timer(25, null);
-        fadeInTimer.addActionListener(e -> {
-            float alpha = moodPanel.getAlpha();
-            alpha += 0.08f;
-            if (alpha >= 1f) {
-                alpha = 1f;
-                ((Timer) e.getSource()).stop();
+        // Fade in the mood panel on app startup; the music panel is built once it's done
+        moodPanel.fade(0f, 1f, 325, null, () -> SwingUtilities.invokeLater(this::ensureMusicPanel));
+    }
+
+    // the playing song's row, if the search shows it
+    private void selectCurrentRow() {
+        int row = listModel.viewIndex(currentIndex);
+        if (row >= 0 && songList.getSelectedIndex() != row) {
+            songList.setSelectedIndex(row);
+            songList.ensureIndexIsVisible(row); // e.g. a search hit deep in a long mood
+        }
+    }
+
+    // the list's names changed: index them again on the search thread, and filter with the new
+    // index once it's there
+    private void reindexSongs() {
+        String[] names = listModel.names();
+        titleSearch = CompletableFuture.supplyAsync(() -> TitleSearch.build(names), searchExecutor);
+        if (!searchField.getText().isBlank()) titleSearch.thenRun(() -> SwingUtilities.invokeLater(this::applySearch));
+    }
+
+    // filters the list to the titles matching the search box; while the index is still being
+    // built it does so when the build finishes
+    private void applySearch() {
+        String query = searchField.getText();
+        int[] rows = null;
+        if (!query.isBlank()) {
+            TitleSearch search = titleSearch.getNow(null);
+            if (search == null) {
+                titleSearch.thenRun(() -> SwingUtilities.invokeLater(this::applySearch));
+                return;
             }
-            moodPanel.setAlpha(alpha);
-            mainPanel.repaint();
-        });
-        fadeInTimer.start();
+            rows = search.find(query);
+        }
+        if (rows == null && !listModel.isFiltered()) return;
+        listModel.setFilter(rows);
+        selectCurrentRow();
+        if (listModel.getSize() > 0) songList.ensureIndexIsVisible(Math.max(0, songList.getSelectedIndex()));
     }
 
     private void playSelectedFromList() {
@@ -956,127 +1278,61 @@ public class MusicMoodApp extends JFrame {
             JOptionPane.showMessageDialog(this, "No songs loaded for this mood.");
             return;
         }
-        int index = songList.getSelectedIndex();
+        int index = listModel.modelIndex(songList.getSelectedIndex());
         if (index < 0) {
             JOptionPane.showMessageDialog(this, "Select a song first.");
             return;
         }
         currentIndex = index;
-        pausedPosition = 0; // new song -> from start
         playCurrentIndex();
     }
 
     private void playCurrentIndex() {
         if (currentFiles == null || currentIndex < 0 || currentIndex >= currentFiles.length) return;
-        File audioFile = currentFiles[currentIndex];
-        String name = audioFile.getName().toLowerCase();
-
-        if (name.endsWith(".mp3")) {
-            playMp3File(audioFile);
-        } else {
-            try {
-                stopAllPlayback();
-                AudioInputStream ais = AudioSystem.getAudioInputStream(audioFile);
-                clip = AudioSystem.getClip();
-                clip.open(ais);
-                setupVolumeControl();
-                clip.setMicrosecondPosition(pausedPosition);
-                clip.start();
-                isMp3Mode = false;
-                isPlaying = true;
-                isPaused = false;
-                songList.setSelectedIndex(currentIndex);
-                updateNowPlayingLabel(audioFile.getName());
-                playBtn.setIcon(loadButtonIcon(ControlButton.Type.PLAY_PAUSE));
-                startProgressTimer();
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(this, "Cannot play: " + ex.getMessage());
-            }
-        }
+        engine.play(currentFiles, currentIndex);
     }
 
     private void playNext() {
         if (currentFiles == null || currentFiles.length == 0) return;
-        currentIndex = (currentIndex + 1) % currentFiles.length;
-        pausedPosition = 0; // next song from start
-        playCurrentIndex();
+        engine.next();
     }
 
     private void playPrevious() {
         if (currentFiles == null || currentFiles.length == 0) return;
-        currentIndex = (currentIndex - 1 + currentFiles.length) % currentFiles.length;
-        pausedPosition = 0; // previous from start
-        playCurrentIndex();
+        engine.previous();
     }
 
     private void pauseOrResume() {
-        if (isMp3Mode) {
-            if (!mp3Paused) {
-                mp3Paused = true;
-                if (mp3Line != null) mp3Line.stop();
-                isPaused = true;
-                isPlaying = false;
-                stopProgressTimer();
-            } else {
-                mp3Paused = false;
-                if (mp3Line != null) mp3Line.start();
-                isPaused = false;
-                isPlaying = true;
-                startProgressTimer();
-            }
-            return;
-        }
-
-        if (clip == null) return;
-
-        if (!isPaused && clip.isRunning()) {
-            // pause
-            pausedPosition = clip.getMicrosecondPosition();
-            clip.stop();
-            isPaused = true;
-            isPlaying = false;
-            stopProgressTimer();
-        } else if (isPaused || !clip.isRunning()) {
-            // resume from pausedPosition
-            clip.setMicrosecondPosition(pausedPosition);
-            clip.start();
-            isPaused = false;
-            isPlaying = true;
-            startProgressTimer();
-        }
-    }
-
-    private void stopClipOnly() {
-        if (clip != null) {
-            if (clip.isRunning()) clip.stop();
-            clip.close();
-            clip = null;
-        }
+        engine.togglePause();
     }
 
-    private void stopMp3Only() {
-        if (mp3Thread != null) {
-            mp3StopRequested = true;
-            try { mp3Thread.join(500); } catch (InterruptedException ignored) {}
-            mp3Thread = null;
+    // runs on the EDT for every state change the engine publishes (track, play/pause/stop, seek)
+    private void onPlaybackChanged(PlaybackEngine.Snapshot snapshot) {
+        PlaybackEngine.Snapshot previous = playback;
+        playback = snapshot;
+        isPlaying = snapshot.state() == PlaybackEngine.State.PLAYING;
+        if (musicPanel == null) return;
+
+        if (snapshot.track() != null && snapshot.index() >= 0 && snapshot.index() < listModel.rowCount()
+                && currentFiles != null && snapshot.index() < currentFiles.length
+                && currentFiles[snapshot.index()].equals(snapshot.track())) {
+            currentIndex = snapshot.index();
+            selectCurrentRow();
         }
-        if (mp3Line != null) {
-            try { mp3Line.stop(); } catch (Exception ignored) {}
-            try { mp3Line.close(); } catch (Exception ignored) {}
-            mp3Line = null;
+        if (snapshot.track() != null && !snapshot.track().equals(previous.track())) {
+            updateNowPlayingLabel(snapshot.track().getName());
         }
-        isMp3Mode = false;
-    }
+        if (!java.util.Objects.equals(snapshot.track(), previous.track())) showWaveform(snapshot.track());
+        if (playBtn != null) playBtn.setIcon(loadButtonIcon(ControlButton.Type.PLAY_PAUSE));
 
-    private void stopAllPlayback() {
-        stopClipOnly();
-        stopMp3Only();
-        resetProgress();
+        if (snapshot.state() == PlaybackEngine.State.STOPPED) {
+            resetProgress();
+            nowPlayingLabel.setText("Now playing: -");
+        }
     }
 
-    // ensure progress timer is stopped and UI reset when clip is stopped
+    // ensure the progress UI is reset when playback is stopped
     private void resetProgress() {
-        stopProgressTimer();
         if (progressSlider != null) {
             progressSlider.setValue(0);
             progressSlider.setToolTipText(null);
@@ -1084,64 +1340,79 @@ public class MusicMoodApp extends JFrame {
         }
     }
 
-    // ===== progress timer helpers =====
-    private void startProgressTimer() {
-        if (progressTimer == null) {
-            progressTimer = new javax.swing.Timer(200, e -> {
-                updateProgressSlider();
-                updateTimeLabels();
+    // the waveform is read from the store, or computed if it isn't there, in the background and
+    // appears when ready; the loudness measured along the way goes to the library entry
+    private void showWaveform(File track) {
+        waveform = null;
+        if (progressSlider != null) progressSlider.repaint();
+        if (track == null) return;
+        LibraryIndex.Entry entry = library != null ? library.get(track) : null;
+        waveformExecutor.submit(() -> {
+            Waveform w = waveforms.load(track);
+            if (w == null) {
+                if (entry != null && LibraryAnalyzer.UNREADABLE.equals(entry.loudness)) return;
+                Waveform.Builder builder = new Waveform.Builder();
+                LibraryIndex.Loudness loudness = LibraryAnalyzer.measureLoudness(track, builder);
+                if (entry != null && entry.loudness == null) entry.loudness = loudness;
+                if (loudness == LibraryAnalyzer.UNREADABLE) return;
+                w = builder.build();
+                waveforms.save(track, w);
+            }
+            Waveform shown = w;
+            SwingUtilities.invokeLater(() -> {
+                if (!track.equals(playback.track())) return;
+                waveform = shown;
+                progressSlider.repaint();
             });
-        }
-        progressTimer.start();
+        });
     }
 
-    private void stopProgressTimer() {
-        if (progressTimer != null) progressTimer.stop();
+    // ===== progress updates =====
+    // pushed by the engine's playback clock; each widget is only touched when what it shows changes
+    private void subscribeProgress() {
+        engine.subscribe(new PlaybackClock.Subscriber() {
+            @Override
+            public long displayedValue(long pos, long len) {
+                return len > 0 ? pos * 1000 / len : -1; // one slider step
+            }
+
+            @Override
+            public void positionChanged(long pos, long len) {
+                SwingUtilities.invokeLater(() -> updateProgressSlider(pos, len));
+            }
+        }, 30);
+        engine.subscribe(new PlaybackClock.Subscriber() {
+            @Override
+            public long displayedValue(long pos, long len) {
+                return pos / 1_000_000L; // labels show whole seconds
+            }
+
+            @Override
+            public void positionChanged(long pos, long len) {
+                SwingUtilities.invokeLater(() -> updateTimeLabels(pos, len));
+            }
+        }, 4);
     }
 
-    private void updateTimeLabels() {
+    private void updateTimeLabels(long pos, long len) {
         if (currentTimeLabel == null || totalTimeLabel == null) return;
-        if (isMp3Mode) {
-            currentTimeLabel.setText(formatTime(mp3PositionMicros));
-            totalTimeLabel.setText(formatTime(mp3TotalMicros));
-            return;
-        }
-        if (clip != null && clip.isOpen()) {
-            currentTimeLabel.setText(formatTime(clip.getMicrosecondPosition()));
-            totalTimeLabel.setText(formatTime(clip.getMicrosecondLength()));
-        }
+        currentTimeLabel.setText(formatTime(pos));
+        totalTimeLabel.setText(formatTime(len));
     }
 
-    private void updateProgressSlider() {
-        if (isMp3Mode) {
-            long len = mp3TotalMicros;
-            long pos = mp3PositionMicros;
-            if (len <= 0) {
-                progressSlider.setEnabled(false);
-                progressSlider.setValue(0);
-                progressSlider.setToolTipText(formatTime(pos));
-                return;
-            }
-            progressSlider.setEnabled(true);
-            if (!seekingProgress) {
-                int val = (int) ((pos * 1000) / len);
-                progressSlider.setValue(Math.max(0, Math.min(1000, val)));
-            }
-            progressSlider.setToolTipText(formatTime(pos) + " / " + formatTime(len));
-            return;
-        }
-
-        if (clip == null || !clip.isOpen()) {
+    private void updateProgressSlider(long pos, long len) {
+        if (progressSlider == null) return;
+        if (playback.state() == PlaybackEngine.State.STOPPED && pos == 0) {
             progressSlider.setValue(0);
             return;
         }
-        long len = clip.getMicrosecondLength();
         if (len <= 0) {
             progressSlider.setEnabled(false);
             progressSlider.setValue(0);
+            progressSlider.setToolTipText(formatTime(pos));
             return;
         }
-        long pos = clip.getMicrosecondPosition();
+        progressSlider.setEnabled(true);
         if (!seekingProgress) {
             int val = (int) ((pos * 1000) / len);
             progressSlider.setValue(Math.max(0, Math.min(1000, val)));
@@ -1150,164 +1421,20 @@ public class MusicMoodApp extends JFrame {
     }
 
     private void stopMusic() {
-        stopAllPlayback();
-        pausedPosition = 0;
-        isPaused = false;
+        engine.stop();
         isPlaying = false;
+        resetProgress();
         nowPlayingLabel.setText("Now playing: -");
         if (playBtn != null) {
             playBtn.setIcon(loadButtonIcon(ControlButton.Type.PLAY_PAUSE));
         }
     }
 
-    // ================= MP3 PLAYBACK =================
-
-    private void playMp3File(File file) {
-        try {
-            stopAllPlayback();
-
-            // Get duration from file properties
-            mp3TotalMicros = -1;
-            mp3TotalBytes = -1;
-            try {
-                AudioFileFormat aff = AudioSystem.getAudioFileFormat(file);
-                Object dur = aff.properties().get("duration");
-                if (dur instanceof Long) mp3TotalMicros = (Long) dur;
-                int byteLen = aff.getByteLength();
-                if (byteLen > 0) mp3TotalBytes = byteLen;
-            } catch (Exception ignored) {}
-
-            AudioInputStream baseStream = AudioSystem.getAudioInputStream(file);
-            AudioFormat baseFormat = baseStream.getFormat();
-            AudioFormat decodeFormat = new AudioFormat(
-                    AudioFormat.Encoding.PCM_SIGNED,
-                    baseFormat.getSampleRate(),
-                    16,
-                    baseFormat.getChannels(),
-                    baseFormat.getChannels() * 2,
-                    baseFormat.getSampleRate(),
-                    false
-            );
-            AudioInputStream decodedStream = AudioSystem.getAudioInputStream(decodeFormat, baseStream);
-
-            DataLine.Info info = new DataLine.Info(SourceDataLine.class, decodeFormat);
-            mp3Line = (SourceDataLine) AudioSystem.getLine(info);
-            mp3Line.open(decodeFormat);
-
-            isMp3Mode = true;
-            isPaused = false;
-            isPlaying = true;
-            mp3StopRequested = false;
-            mp3Paused = false;
-            mp3PositionMicros = 0;
-            currentMp3File = file;
-            mp3DecodeFormat = decodeFormat;
-
-            setupVolumeControl();
-
-            songList.setSelectedIndex(currentIndex);
-            updateNowPlayingLabel(file.getName());
-            playBtn.setIcon(loadButtonIcon(ControlButton.Type.PLAY_PAUSE));
-
-            startMp3Thread(decodedStream, baseStream);
-            startProgressTimer();
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this, "Cannot play: " + ex.getMessage());
-            stopMp3Only();
-        }
-    }
-
-    private void startMp3Thread(AudioInputStream decodedStream, AudioInputStream baseStream) {
-        mp3Thread = new Thread(() -> {
-            try {
-                mp3Line.start();
-                byte[] buffer = new byte[4096];
-                int n;
-                double bytesPerSecond = mp3DecodeFormat.getFrameRate() * mp3DecodeFormat.getFrameSize();
-                while (!mp3StopRequested && (n = decodedStream.read(buffer, 0, buffer.length)) != -1) {
-                    while (mp3Paused && !mp3StopRequested) {
-                        try { Thread.sleep(50); } catch (InterruptedException ignored) {}
-                    }
-                    if (mp3StopRequested) break;
-                    mp3Line.write(buffer, 0, n);
-                    mp3PositionMicros += (long) ((n / bytesPerSecond) * 1_000_000);
-                }
-            } catch (Exception ex) {
-                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, "Cannot play: " + ex.getMessage()));
-            } finally {
-                try { decodedStream.close(); } catch (Exception ignored) {}
-                try { baseStream.close(); } catch (Exception ignored) {}
-                try { if (mp3Line != null) mp3Line.drain(); } catch (Exception ignored) {}
-                try { if (mp3Line != null) mp3Line.close(); } catch (Exception ignored) {}
-                SwingUtilities.invokeLater(() -> {
-                    isPlaying = false;
-                    stopProgressTimer();
-                });
-            }
-        }, "mp3-player-thread");
-        mp3Thread.start();
-    }
-
-    private void mp3SeekTo(long micros) {
-        if (!isMp3Mode || currentMp3File == null || mp3TotalMicros <= 0 || mp3TotalBytes <= 0) return;
-        stopMp3Only();
-        try {
-            AudioInputStream baseStream = AudioSystem.getAudioInputStream(currentMp3File);
-            long targetBytes = (long) ((micros / (double) mp3TotalMicros) * mp3TotalBytes);
-            long remaining = Math.max(0, targetBytes);
-            byte[] skipBuf = new byte[4096];
-            while (remaining > 0) {
-                long skipped = baseStream.skip(Math.min(remaining, skipBuf.length));
-                if (skipped <= 0) break;
-                remaining -= skipped;
-            }
-
-            AudioInputStream decodedStream = AudioSystem.getAudioInputStream(mp3DecodeFormat, baseStream);
-            DataLine.Info info = new DataLine.Info(SourceDataLine.class, mp3DecodeFormat);
-            mp3Line = (SourceDataLine) AudioSystem.getLine(info);
-            mp3Line.open(mp3DecodeFormat);
-
-            isMp3Mode = true;
-            mp3Paused = false;
-            mp3StopRequested = false;
-            isPlaying = true;
-            mp3PositionMicros = micros;
-
-            setupVolumeControl();
-            startMp3Thread(decodedStream, baseStream);
-            startProgressTimer();
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this, "Cannot seek: " + ex.getMessage());
-        }
-    }
-
     // ================= VOLUME =================
 
-    private void setupVolumeControl() {
-        volumeControl = null;
-        if (isMp3Mode) {
-            if (mp3Line != null && mp3Line.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
-                volumeControl = (FloatControl) mp3Line.getControl(FloatControl.Type.MASTER_GAIN);
-            }
-        } else if (clip != null && clip.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
-            volumeControl = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
-        }
-        updateVolume();
-    }
-
     private void updateVolume() {
-        if (volumeControl == null) return;
-
-        // Convert linear slider (0-100) to logarithmic gain for better perceived volume control
-        float sliderVal = volumeSlider.getValue() / 100f;
-        float min = volumeControl.getMinimum();
-        float max = volumeControl.getMaximum();
-
-        // Logarithmic scale: 0 slider = min, 1 slider = max
-        // Using power function for smoother progression
-        float logVal = (float) Math.pow(sliderVal, 0.7f); // 0.7 gives better low-end control
-        float gain = min + (max - min) * logVal;
-        volumeControl.setValue(gain);
+        // Convert linear slider (0-100) to the engine's 0..1 volume; it applies the gain curve
+        engine.setVolume(volumeSlider.getValue() / 100f);
     }
 
     // format microsecond time to M:SS
@@ -1342,23 +1469,7 @@ public class MusicMoodApp extends JFrame {
         int prefixWidth = fm.stringWidth(prefix);
         int remainingWidth = availableWidth - prefixWidth - 20; // 20px margin
 
-        // Find the maximum characters that fit (without extension)
-        String shortened = displayFileName;
-        if (fm.stringWidth(displayFileName) > remainingWidth) {
-            String ellipsis = "...";
-            int ellipsisWidth = fm.stringWidth(ellipsis);
-            int baseWidth = remainingWidth - ellipsisWidth;
-
-            // Binary search for the right length
-            int maxBaseChars = displayFileName.length();
-            for (int i = displayFileName.length(); i > 0; i--) {
-                if (fm.stringWidth(displayFileName.substring(0, i)) <= baseWidth) {
-                    maxBaseChars = i;
-                    break;
-                }
-            }
-            shortened = displayFileName.substring(0, Math.max(1, maxBaseChars)) + ellipsis;
-        }
+        String shortened = ellipsizer.fit(displayFileName, fm, remainingWidth);
 
         String displayText = prefix + shortened;
         nowPlayingLabel.setText(displayText);
@@ -1376,71 +1487,80 @@ public class MusicMoodApp extends JFrame {
         float heightScale = panelHeight / 600f; // Base height 600
         float scale = Math.min(widthScale, heightScale);
 
+        MusicLayout layout = new MusicLayout(
+                FontCache.bucket(Math.max(24f, Math.min(48f, 48f * scale))),
+                FontCache.bucket(Math.max(12f, Math.min(18f, 18f * scale))),
+                FontCache.bucket(Math.max(14f, Math.min(22f, 22f * scale))),
+                (int) Math.max(30, Math.min(50, 50 * scale)),
+                (int) Math.max(20, Math.min(32, 32 * scale)),
+                FontCache.bucket(Math.max(12f, Math.min(18f, 18f * scale))),
+                (int) Math.max(100, Math.min(150, 150 * scale)),
+                (int) Math.max(250, Math.min(400, 400 * scale)),
+                FontCache.bucket(Math.max(10f, Math.min(14f, 14f * scale))));
+        MusicLayout old = musicLayout;
+        if (layout.equals(old)) return;
+        musicLayout = layout;
+        // font changes revalidate their own component; only explicit sizes need a layout pass here
+        boolean resized = false;
+
         // Update title font size
-        if (titleLabel != null) {
-            float titleSize = Math.max(24f, Math.min(48f, 48f * scale));
-            titleLabel.setFont(fBold(titleSize));
-        }
+        if (old == null || layout.titleSize() != old.titleSize()) titleLabel.setFont(fBold(layout.titleSize()));
 
         // Update volume label font size
-        if (volLabel != null) {
-            float volSize = Math.max(12f, Math.min(18f, 18f * scale));
-            if (musicFont != null) volLabel.setFont(musicFont.deriveFont(Font.PLAIN, volSize));
-            else volLabel.setFont(fPlain(volSize));
-        }
+        if (old == null || layout.volSize() != old.volSize()) volLabel.setFont(fMusic(layout.volSize()));
 
         // Update song list font
-        if (songList != null) {
-            float listFontSize = Math.max(14f, Math.min(22f, 22f * scale));
-            if (musicFont != null) songList.setFont(musicFont.deriveFont(Font.PLAIN, listFontSize));
-            else songList.setFont(fPlain(listFontSize));
+        if (old == null || layout.listSize() != old.listSize()) {
+            songList.setFont(fMusic(layout.listSize()));
+            songList.setPrototypeCellValue(SONG_PROTOTYPE); // row height for the new font
+            searchField.setFont(fMusic(layout.listSize()));
         }
 
         // Update control button sizes
-        int buttonSize = (int) Math.max(30, Math.min(50, 50 * scale));
-        int iconSize = (int) Math.max(20, Math.min(32, 32 * scale));
-        if (prevBtn != null) updateControlButtonSize(prevBtn, buttonSize, iconSize);
-        if (playBtn != null) updateControlButtonSize(playBtn, buttonSize, iconSize);
-        if (stopBtn != null) updateControlButtonSize(stopBtn, buttonSize, iconSize);
-        if (nextBtn != null) updateControlButtonSize(nextBtn, buttonSize, iconSize);
-        if (backBtn != null) updateControlButtonSize(backBtn, buttonSize, iconSize);
+        if (old == null || layout.buttonSize() != old.buttonSize() || layout.iconSize() != old.iconSize()) {
+            controlIconSize = layout.iconSize();
+            updateControlButtonSize(prevBtn, layout.buttonSize(), layout.iconSize());
+            updateControlButtonSize(playBtn, layout.buttonSize(), layout.iconSize());
+            updateControlButtonSize(stopBtn, layout.buttonSize(), layout.iconSize());
+            updateControlButtonSize(nextBtn, layout.buttonSize(), layout.iconSize());
+            updateControlButtonSize(backBtn, layout.buttonSize(), layout.iconSize());
+            resized = true;
+        }
 
         // Update now playing label font
-        if (nowPlayingLabel != null) {
-            float labelSize = Math.max(12f, Math.min(18f, 18f * scale));
-            if (musicFont != null) nowPlayingLabel.setFont(musicFont.deriveFont(Font.PLAIN, labelSize));
-            else nowPlayingLabel.setFont(fPlain(labelSize));
+        if (old == null || layout.labelSize() != old.labelSize()) {
+            nowPlayingLabel.setFont(fMusic(layout.labelSize()));
 
             // Re-update the label text with new size
-            if (clip != null && clip.isOpen() && currentFiles != null && currentIndex >= 0) {
-                updateNowPlayingLabel(currentFiles[currentIndex].getName());
+            if (playback.track() != null) {
+                updateNowPlayingLabel(playback.track().getName());
             }
         }
 
         // Update volume slider size
-        if (volumeSlider != null) {
-            int sliderWidth = (int) Math.max(100, Math.min(150, 150 * scale));
-            volumeSlider.setPreferredSize(new Dimension(sliderWidth, 22));
-            volumeSlider.setMaximumSize(new Dimension(sliderWidth, 22));
-            volumeSlider.setMinimumSize(new Dimension(sliderWidth, 22));
+        if (old == null || layout.volumeWidth() != old.volumeWidth()) {
+            Dimension size = new Dimension(layout.volumeWidth(), 22);
+            volumeSlider.setPreferredSize(size);
+            volumeSlider.setMaximumSize(size);
+            volumeSlider.setMinimumSize(size);
+            resized = true;
         }
 
         // Update progress slider size
-        if (progressSlider != null) {
-            int progressWidth = (int) Math.max(250, Math.min(400, 400 * scale));
-            progressSlider.setPreferredSize(new Dimension(progressWidth, 8));
-            progressSlider.setMaximumSize(new Dimension(progressWidth, 8));
+        if (old == null || layout.progressWidth() != old.progressWidth()) {
+            Dimension size = new Dimension(layout.progressWidth(), 8);
+            progressSlider.setPreferredSize(size);
+            progressSlider.setMaximumSize(size);
+            resized = true;
         }
 
         // Update time labels
-        if (currentTimeLabel != null && totalTimeLabel != null) {
-            float timeSize = Math.max(10f, Math.min(14f, 14f * scale));
-            currentTimeLabel.setFont(fPlain(timeSize));
-            totalTimeLabel.setFont(fPlain(timeSize));
+        if (old == null || layout.timeSize() != old.timeSize()) {
+            currentTimeLabel.setFont(fPlain(layout.timeSize()));
+            totalTimeLabel.setFont(fPlain(layout.timeSize()));
         }
 
-        musicPanel.revalidate();
-        musicPanel.repaint();
+        if (resized) musicPanel.revalidate();
     }
 
     private void updateControlButtonSize(ControlButton btn, int size, int iconSize) {
@@ -1468,12 +1588,9 @@ public class MusicMoodApp extends JFrame {
             case BACK -> file = "back.png";
             default -> file = "play.png";
         }
-        File f = new File(ICON_PATH + file);
-        if (!f.exists()) {
-            return new ImageIcon();
-        }
-        Image img = new ImageIcon(f.getAbsolutePath()).getImage()
-                .getScaledInstance(size, size, Image.SCALE_SMOOTH);
-        return new ImageIcon(img);
+        // scaled once per size and screen scale, then served from the cache
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        ImageIcon icon = preload.icons().join().get(file, size, gc != null ? gc.getDefaultTransform().getScaleX() : 1);
+        return icon != null ? icon : new ImageIcon();
     }
 }
\ No newline at end of file
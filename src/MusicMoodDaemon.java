@@ -0,0 +1,282 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+
+// The player without a window, for a box wired to speakers: the same library, analysis and
+// PlaybackEngine as MusicMoodApp, but no AWT/Swing class is ever loaded. It is controlled over
+// HTTP on the loopback interface only (-Ddaemon.port, default 7070):
+//
+//   GET  /state                          what's playing, position, volume
+//   GET  /moods                          mood folders and their track counts
+//   GET  /tracks                         the selected mood's playlist
+//   POST /mood?name=chill[&index=3]      select a mood and start playing it
+//   POST /play[?index=3]  /pause  /resume  /toggle  /stop  /next  /previous
+//   POST /seek?seconds=90
+//   POST /volume?value=60                0..100, like the GUI slider
+//
+// Commands are queued on the engine thread, so the state a command returns may not show its
+// effect yet. Usage: java -cp "app/target/music-mood-app-1.0-SNAPSHOT.jar:lib/*" MusicMoodDaemon [mood]
+class MusicMoodDaemon {
+
+    private static final String MUSIC_PATH = "music/";
+    private static final String LIBRARY_INDEX_PATH = "cache/library.idx";
+    private static final String WAVEFORM_CACHE_PATH = "cache/waveforms/";
+
+    private final LibraryIndex library;
+    private final PlaybackEngine engine;
+
+    // playlist of the selected mood; guarded by this
+    private String mood;
+    private File[] files = new File[0];
+    private float volume = 0.8f;
+
+    MusicMoodDaemon() {
+        library = LibraryIndex.load(new File(MUSIC_PATH), new File(LIBRARY_INDEX_PATH));
+        LibraryAnalyzer analyzer = new LibraryAnalyzer(library, new WaveformStore(new File(WAVEFORM_CACHE_PATH)));
+        library.rescanInBackground(analyzer::analyzeInBackground);
+        try {
+            MusicFolderWatcher.start(new File(MUSIC_PATH).toPath(), library, moods -> {
+                analyzer.analyzeInBackground();
+                libraryChanged(moods);
+            });
+        } catch (Exception ex) {
+            System.out.println("Cannot watch " + MUSIC_PATH + ": " + ex.getMessage());
+        }
+        engine = new PlaybackEngine(library);
+        engine.setVolume(volume);
+        engine.addListener(new PlaybackEngine.Listener() {
+            @Override
+            public void playbackChanged(PlaybackEngine.Snapshot snapshot) {}
+
+            @Override
+            public void playbackFailed(File track, String message) {
+                System.out.println(message);
+            }
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        System.setProperty("java.awt.headless", "true");
+        int port = Integer.getInteger("daemon.port", 7070);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 16);
+        MusicMoodDaemon daemon = new MusicMoodDaemon();
+        server.createContext("/", daemon::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor()); // a virtual thread per request
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(0), "daemon-shutdown-thread"));
+        if (args.length > 0) daemon.selectMood(args[0], 0);
+        System.out.printf("Listening on http://%s:%d (started in %d ms)%n",
+                server.getAddress().getHostString(), port, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // ================= PLAYLIST =================
+
+    // stops playback, then plays the mood's songs from index; false if the mood has none
+    synchronized boolean selectMood(String name, int index) {
+        String m = name.toLowerCase(Locale.ROOT); // "Happy" -> folder music/happy
+        if (!library.isScanned(m)) library.scanMood(m); // asked for before the first rescan got to it
+        List<LibraryIndex.Entry> entries = library.entriesFor(m);
+        engine.stop();
+        mood = m;
+        files = new File[entries.size()];
+        for (int i = 0; i < files.length; i++) files[i] = entries.get(i).file;
+        if (files.length == 0) return false;
+        engine.play(files, Math.floorMod(index, files.length));
+        return true;
+    }
+
+    synchronized boolean playIndex(int index) {
+        if (index < 0 || index >= files.length) return false;
+        engine.play(files, index);
+        return true;
+    }
+
+    // the selected mood's files changed on disk: the engine keeps its playing track where it is in the new list
+    private synchronized void libraryChanged(java.util.Set<String> moods) {
+        if (mood == null || !moods.contains(mood)) return;
+        List<LibraryIndex.Entry> entries = library.entriesFor(mood);
+        File[] updated = new File[entries.size()];
+        for (int i = 0; i < updated.length; i++) updated[i] = entries.get(i).file;
+        files = updated;
+        engine.updateQueue(files);
+    }
+
+    // ================= HTTP =================
+
+    private void handle(HttpExchange ex) throws IOException {
+        try {
+            String path = ex.getRequestURI().getPath();
+            Map<String, String> query = parseQuery(ex.getRequestURI().getRawQuery());
+            boolean post = ex.getRequestMethod().equals("POST");
+            if (ex.getRequestMethod().equals("GET")) {
+                switch (path) {
+                    case "/", "/state" -> reply(ex, 200, stateJson());
+                    case "/moods" -> reply(ex, 200, moodsJson());
+                    case "/tracks" -> reply(ex, 200, tracksJson());
+                    default -> reply(ex, 404, error("unknown resource " + path));
+                }
+                return;
+            }
+            if (!post) {
+                reply(ex, 405, error("use GET to query and POST for commands"));
+                return;
+            }
+            String problem = command(path, query);
+            if (problem != null) reply(ex, problem.startsWith("unknown") ? 404 : 400, error(problem));
+            else reply(ex, 200, stateJson());
+        } catch (RuntimeException e) {
+            reply(ex, 500, error(String.valueOf(e.getMessage())));
+        } finally {
+            ex.close();
+        }
+    }
+
+    // runs one command; returns what was wrong with it, or null
+    private String command(String path, Map<String, String> query) {
+        try {
+            switch (path) {
+                case "/mood" -> {
+                    String name = query.get("name");
+                    if (name == null) return "missing name";
+                    if (!selectMood(name, intParam(query, "index", 0))) return "no songs for mood " + name;
+                }
+                case "/play" -> {
+                    if (query.containsKey("index")) {
+                        if (!playIndex(intParam(query, "index", 0))) return "no such track";
+                    } else if (engine.snapshot().state() == PlaybackEngine.State.PAUSED) {
+                        engine.resume();
+                    } else if (engine.snapshot().state() == PlaybackEngine.State.STOPPED && !playIndex(0)) {
+                        return "select a mood first";
+                    }
+                }
+                case "/pause" -> engine.pause();
+                case "/resume" -> engine.resume();
+                case "/toggle" -> engine.togglePause();
+                case "/stop" -> engine.stop();
+                case "/next" -> engine.next();
+                case "/previous" -> engine.previous();
+                case "/seek" -> {
+                    String seconds = query.get("seconds");
+                    if (seconds == null) return "missing seconds";
+                    engine.seek((long) (Double.parseDouble(seconds) * 1_000_000));
+                }
+                case "/volume" -> {
+                    int value = intParam(query, "value", -1);
+                    if (value < 0 || value > 100) return "value must be 0..100";
+                    synchronized (this) {
+                        volume = value / 100f;
+                    }
+                    engine.setVolume(value / 100f);
+                }
+                default -> {
+                    return "unknown command " + path;
+                }
+            }
+            return null;
+        } catch (NumberFormatException e) {
+            return "not a number: " + e.getMessage();
+        }
+    }
+
+    private static int intParam(Map<String, String> query, String name, int fallback) {
+        String v = query.get(name);
+        return v != null ? Integer.parseInt(v) : fallback;
+    }
+
+    private static Map<String, String> parseQuery(String raw) {
+        Map<String, String> query = new HashMap<>();
+        if (raw == null) return query;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq >= 0 ? pair.substring(0, eq) : pair;
+            String value = eq >= 0 ? pair.substring(eq + 1) : "";
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void reply(HttpExchange ex, int status, String json) throws IOException {
+        byte[] body = (json + "\n").getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // ================= JSON =================
+
+    private synchronized String stateJson() {
+        PlaybackEngine.Snapshot s = engine.snapshot();
+        StringBuilder sb = new StringBuilder("{");
+        sb.append("\"state\":").append(quote(s.state().name().toLowerCase(Locale.ROOT)));
+        sb.append(",\"mood\":").append(mood != null ? quote(mood) : "null");
+        sb.append(",\"index\":").append(s.index());
+        sb.append(",\"track\":");
+        LibraryIndex.Entry entry = s.track() != null ? library.get(s.track()) : null;
+        if (entry != null) sb.append(quote(entry.displayName()));
+        else sb.append(s.track() != null ? quote(s.track().getName()) : "null");
+        sb.append(",\"positionSeconds\":").append(String.format(Locale.ROOT, "%.1f", s.positionMicros() / 1e6));
+        sb.append(",\"durationSeconds\":");
+        sb.append(s.durationMicros() > 0 ? String.format(Locale.ROOT, "%.1f", s.durationMicros() / 1e6) : "null");
+        sb.append(",\"volume\":").append(Math.round(volume * 100));
+        sb.append(",\"tracks\":").append(files.length);
+        return sb.append('}').toString();
+    }
+
+    private String moodsJson() {
+        StringBuilder sb = new StringBuilder("[");
+        for (String m : new TreeSet<>(library.moods())) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append("{\"name\":").append(quote(m)).append(",\"tracks\":").append(library.entriesFor(m).size()).append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    private synchronized String tracksJson() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < files.length; i++) {
+            if (i > 0) sb.append(',');
+            LibraryIndex.Entry entry = library.get(files[i]);
+            sb.append(quote(entry != null ? entry.displayName() : files[i].getName()));
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
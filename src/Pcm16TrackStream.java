@@ -0,0 +1,61 @@
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+
+// Another stream's PCM converted to 16-bit signed little endian, for WAVs (24-bit, 32-bit, float)
+// whose own format the mixer has no line for. Same rate and channels, so seeks and the clock
+// work as on the source.
+class Pcm16TrackStream extends TrackStream {
+
+    private final TrackStream source;
+    private byte[] in = new byte[0];
+    private float[] samples = new float[0];
+
+    Pcm16TrackStream(TrackStream source) {
+        super(source.file, new AudioFormat(source.format.getSampleRate(), 16, source.format.getChannels(), true, false));
+        this.source = source;
+        this.startMicros = source.startMicros;
+    }
+
+    // null if the source is 16-bit already or its samples can't be unpacked either
+    static Pcm16TrackStream of(TrackStream source) {
+        AudioFormat f = source.format;
+        if (f.getSampleSizeInBits() == 16 && !f.isBigEndian() && f.getEncoding() == AudioFormat.Encoding.PCM_SIGNED) return null;
+        return DspChain.toFloats(new byte[0], 0, 0, f, new float[0]) < 0 ? null : new Pcm16TrackStream(source);
+    }
+
+    @Override
+    int read(byte[] b, int off, int len) throws IOException {
+        int frames = len / format.getFrameSize();
+        if (frames == 0) return 0;
+        int want = frames * source.format.getFrameSize();
+        if (in.length < want) in = new byte[want];
+        int n = source.read(in, 0, want);
+        if (n <= 0) return n;
+        n -= n % source.format.getFrameSize();
+        int count = n / source.format.getFrameSize() * format.getChannels();
+        if (samples.length < count) samples = new float[count];
+        DspChain.toFloats(in, 0, n, source.format, samples);
+        DspChain.toBytes(samples, count, format, b, off);
+        return count * 2;
+    }
+
+    @Override
+    TrackStream seekTo(long micros) throws Exception {
+        return new Pcm16TrackStream(source.seekTo(micros));
+    }
+
+    @Override
+    long durationMicros() {
+        return source.durationMicros();
+    }
+
+    @Override
+    void prefetch(int maxBytes) throws IOException {
+        source.prefetch(maxBytes);
+    }
+
+    @Override
+    public void close() {
+        source.close();
+    }
+}
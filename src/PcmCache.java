@@ -0,0 +1,208 @@
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Fully decoded (and gapless-trimmed) PCM of recently played and prefetched MP3s, kept in
+// direct buffers outside the Java heap. A cached track starts without touching the decoder
+// and seeks by offset. Bounded by a byte budget with least-recently-used eviction:
+// -Dpcm.cacheMB=256 (0 turns it off).
+class PcmCache {
+
+    record Stats(long hits, long misses, long evictions, long bytes, int tracks, long budget) {
+        @Override
+        public String toString() {
+            return String.format("PCM cache: %d tracks, %.1f / %.0f MB, %d hits, %d misses, %d evictions",
+                    tracks, bytes / 1048576.0, budget / 1048576.0, hits, misses, evictions);
+        }
+    }
+
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private final long budget;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits, misses, evictions;
+
+    private static final class Entry {
+        final AudioFormat format;
+        final ByteBuffer[] chunks;
+        final long length;
+
+        Entry(AudioFormat format, ByteBuffer[] chunks, long length) {
+            this.format = format;
+            this.chunks = chunks;
+            this.length = length;
+        }
+
+        // what the entry holds off-heap: whole chunks, the last one usually part empty
+        long footprint() {
+            return (long) chunks.length * CHUNK_BYTES;
+        }
+    }
+
+    PcmCache(long budgetBytes) {
+        this.budget = Math.max(0, budgetBytes);
+    }
+
+    static PcmCache fromSystemProperties() {
+        return new PcmCache(Long.getLong("pcm.cacheMB", 256) * 1024 * 1024);
+    }
+
+    boolean isEnabled() {
+        return budget > 0;
+    }
+
+    // stream over the cached PCM, or null if the track isn't cached. Not counted: the engine may
+    // look a track up more than once (prefetch, crossfade, gapless join); started() counts it.
+    synchronized TrackStream open(File file) {
+        if (!isEnabled() || !isCacheable(file)) return null;
+        Entry e = entries.get(cacheKey(file));
+        return e == null ? null : new CachedStream(file, e, 0);
+    }
+
+    // counts a track starting to play: a hit from the cache, a miss for a cacheable track decoded instead
+    synchronized void started(TrackStream stream) {
+        if (stream instanceof CachedStream) hits++;
+        else if (isEnabled() && isCacheable(stream.file)) misses++;
+    }
+
+    // only decoded formats; WAV is already read straight from the (mapped) file
+    static boolean isCacheable(File file) {
+        return file.getName().toLowerCase().endsWith(".mp3");
+    }
+
+    synchronized boolean contains(File file) {
+        return entries.containsKey(cacheKey(file));
+    }
+
+    synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, bytes, entries.size(), budget);
+    }
+
+    // collects a track's PCM as it is decoded; null when caching is off or the track is already cached
+    Builder builder(File file, AudioFormat format) {
+        if (!isEnabled() || !isCacheable(file) || contains(file)) return null;
+        return new Builder(file, format);
+    }
+
+    // decode the whole file into the cache (background threads only)
+    void fill(File file) {
+        if (!isEnabled() || !isCacheable(file) || contains(file)) return;
+        try (TrackStream stream = Mp3TrackStream.open(file)) {
+            Builder builder = new Builder(file, stream.format);
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = stream.read(buf, 0, buf.length)) > 0) {
+                if (!builder.append(buf, 0, n)) return;
+            }
+            builder.commit();
+        } catch (Exception ignored) {
+            // played from the decoder instead
+        }
+    }
+
+    private synchronized void put(String key, Entry e) {
+        if (e.footprint() > budget || entries.containsKey(key)) return;
+        Iterator<Entry> it = entries.values().iterator();
+        while (bytes + e.footprint() > budget && it.hasNext()) {
+            bytes -= it.next().footprint();
+            it.remove();
+            evictions++;
+        }
+        entries.put(key, e);
+        bytes += e.footprint();
+    }
+
+    private static String cacheKey(File file) {
+        return file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified();
+    }
+
+    final class Builder {
+        private final String key;
+        private final AudioFormat format;
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        private ByteBuffer current;
+        private long length;
+        private boolean abandoned;
+
+        private Builder(File file, AudioFormat format) {
+            this.key = cacheKey(file);
+            this.format = format;
+        }
+
+        // false once the track's chunks have grown past the whole budget and the builder gave up
+        boolean append(byte[] b, int off, int len) {
+            if (abandoned) return false;
+            while (len > 0) {
+                if (current == null || !current.hasRemaining()) {
+                    if ((long) (chunks.size() + 1) * CHUNK_BYTES > budget) {
+                        abandoned = true;
+                        chunks.clear();
+                        current = null;
+                        return false;
+                    }
+                    current = ByteBuffer.allocateDirect(CHUNK_BYTES);
+                    chunks.add(current);
+                }
+                int n = Math.min(len, current.remaining());
+                current.put(b, off, n);
+                off += n;
+                len -= n;
+                length += n;
+            }
+            return true;
+        }
+
+        void commit() {
+            if (abandoned || length == 0) return;
+            put(key, new Entry(format, chunks.toArray(new ByteBuffer[0]), length));
+        }
+    }
+
+    // reads with absolute gets, so any number of streams can share one entry's buffers
+    private static final class CachedStream extends TrackStream {
+        private final Entry entry;
+        private long position;
+
+        CachedStream(File file, Entry entry, long position) {
+            super(file, entry.format);
+            this.entry = entry;
+            this.position = position;
+            this.startMicros = bytesToMicros(position);
+        }
+
+        @Override
+        int read(byte[] b, int off, int len) {
+            if (position >= entry.length) return -1;
+            int chunk = (int) (position / CHUNK_BYTES);
+            int inChunk = (int) (position % CHUNK_BYTES);
+            int n = (int) Math.min(len, Math.min(entry.length - position, CHUNK_BYTES - inChunk));
+            entry.chunks[chunk].get(inChunk, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        TrackStream seekTo(long micros) {
+            long frame = (long) (Math.max(0, micros) * (double) format.getFrameRate() / 1_000_000.0);
+            return new CachedStream(file, entry, Math.min(frame * format.getFrameSize(), entry.length));
+        }
+
+        @Override
+        long durationMicros() {
+            return bytesToMicros(entry.length);
+        }
+
+        private long bytesToMicros(long b) {
+            return (long) (b / format.getFrameSize() * 1_000_000.0 / format.getFrameRate());
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,189 @@
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Playback position read from the output line's frame counter (what the device has actually
+// played), not from what the decoder has written. Each track on a line is a Segment that
+// starts at a known line frame and media time, so a seek or a gapless join is just a new
+// origin.
+//
+// Subscribers are pushed updates from one ticker thread at their own rate, and only when
+// the value they display (seconds, slider step, ...) actually changes. The ticker only runs
+// while there is a segment: it parks after reporting the stop, and wakes up on start() or
+// for a new subscriber's first update.
+class PlaybackClock {
+
+    // one track playing on one line: media time startMicros is heard at line frame startFrame
+    record Segment(LongSupplier lineFrames, long startFrame, long startMicros, float frameRate,
+                   long durationMicros, int index, File track) {
+
+        long positionAt(long playedFrames) {
+            long micros = startMicros + (long) ((playedFrames - startFrame) * 1_000_000.0 / frameRate);
+            micros = Math.max(startMicros, micros);
+            return durationMicros > 0 ? Math.min(durationMicros, micros) : micros;
+        }
+    }
+
+    interface Subscriber {
+        void positionChanged(long positionMicros, long durationMicros);
+
+        // the value this subscriber shows; positionChanged only fires when it differs from the last one
+        default long displayedValue(long positionMicros, long durationMicros) {
+            return positionMicros;
+        }
+    }
+
+    // extra output latency the line doesn't report itself (e.g. Bluetooth), -Dplayback.latencyMs=...
+    private static final long EXTRA_LATENCY_MICROS = Long.getLong("playback.latencyMs", 0) * 1000;
+    private static final int IDLE_RATE_HZ = 10;
+
+    // written only by the engine thread (start, reset): previous before current, so a reader that
+    // sees a new current also sees its previous
+    private volatile Segment current;
+    private volatile Segment previous;  // still audible right after a gapless join
+    private final Runnable onSegmentAudible;
+    private Segment lastAudible;        // ticker thread only
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "playback-clock-thread");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledFuture<?> tickTask;
+    private int tickRateHz;
+
+    final class Subscription {
+        private final Subscriber subscriber;
+        private final long periodNanos;
+        private volatile long nextDue;
+        private long lastValue = Long.MIN_VALUE;
+        private volatile long lastDuration = Long.MIN_VALUE;
+
+        private Subscription(Subscriber subscriber, int rateHz) {
+            this.subscriber = subscriber;
+            this.periodNanos = 1_000_000_000L / rateHz;
+        }
+
+        void cancel() {
+            subscriptions.remove(this);
+            reschedule();
+        }
+    }
+
+    // onSegmentAudible runs on the ticker thread when playback crosses into a newer segment
+    PlaybackClock(Runnable onSegmentAudible) {
+        this.onSegmentAudible = onSegmentAudible;
+    }
+
+    // ===== engine side =====
+
+    // a new track (or a seek) on the line; keepPrevious when the old segment is still buffered ahead of it
+    void start(Segment segment, boolean keepPrevious) {
+        previous = keepPrevious ? current : null;
+        current = segment;
+        invalidate();
+        reschedule();
+    }
+
+    void reset() {
+        current = null;
+        previous = null;
+        invalidate();
+        reschedule(); // one more tick reports the stop, then the ticker parks
+    }
+
+    // ===== readers (any thread) =====
+
+    // the segment the listener is hearing right now
+    Segment audibleSegment() {
+        Segment s = current, p = previous;
+        if (s == null) return null;
+        if (p != null && p.lineFrames == s.lineFrames && playedFrames(s) < s.startFrame) return p;
+        return s;
+    }
+
+    long positionMicros() {
+        Segment s = audibleSegment();
+        return s == null ? 0 : s.positionAt(playedFrames(s));
+    }
+
+    private long playedFrames(Segment s) {
+        long latency = (long) (EXTRA_LATENCY_MICROS * s.frameRate / 1_000_000.0);
+        return s.lineFrames.getAsLong() - latency;
+    }
+
+    // ===== subscribers =====
+
+    Subscription subscribe(Subscriber subscriber, int rateHz) {
+        Subscription sub = new Subscription(subscriber, Math.max(1, rateHz));
+        subscriptions.add(sub);
+        invalidate();
+        reschedule();
+        return sub;
+    }
+
+    // deliver the next tick even if the displayed values look unchanged (track, state or seek)
+    void invalidate() {
+        for (Subscription sub : subscriptions) {
+            sub.lastDuration = Long.MIN_VALUE;
+            sub.nextDue = 0;
+        }
+    }
+
+    // the ticker runs at the fastest subscriber's rate; each subscriber is called at its own
+    private synchronized void reschedule() {
+        int rate = IDLE_RATE_HZ;
+        for (Subscription sub : subscriptions) rate = Math.max(rate, (int) (1_000_000_000L / sub.periodNanos));
+        if (tickTask != null && rate == tickRateHz) return;
+        if (tickTask != null) tickTask.cancel(false);
+        tickRateHz = rate;
+        tickTask = ticker.scheduleAtFixedRate(this::tick, 0, 1_000_000L / rate, TimeUnit.MICROSECONDS);
+    }
+
+    // stops ticking until the next reschedule(), unless a segment started or an update is still
+    // owed in the meantime (start/subscribe/reset invalidate before they reschedule)
+    private synchronized void park() {
+        if (current != null || tickTask == null) return;
+        for (Subscription sub : subscriptions) if (sub.lastDuration == Long.MIN_VALUE) return;
+        tickTask.cancel(false);
+        tickTask = null;
+    }
+
+    private void tick() {
+        try {
+            Segment audible = audibleSegment();
+            if (audible != lastAudible) {
+                Segment before = lastAudible;
+                lastAudible = audible;
+                // previous stays set (the engine thread is its only writer); lastAudible makes this fire once
+                if (before != null && before == previous && audible == current) {
+                    invalidate();
+                    onSegmentAudible.run();
+                }
+            }
+
+            long now = System.nanoTime();
+            long position = audible == null ? 0 : audible.positionAt(playedFrames(audible));
+            long duration = audible == null ? -1 : audible.durationMicros;
+            for (Subscription sub : subscriptions) {
+                if (now < sub.nextDue) continue;
+                sub.nextDue = now + sub.periodNanos;
+                long value = sub.subscriber.displayedValue(position, duration);
+                if (value == sub.lastValue && duration == sub.lastDuration) continue;
+                sub.lastValue = value;
+                sub.lastDuration = duration;
+                sub.subscriber.positionChanged(position, duration);
+            }
+            // stopped and reported to everyone: nothing changes until start() or a new subscriber
+            if (audible == null && current == null) park();
+        } catch (Exception ex) {
+            // a line closed under us between reads; the next tick sees the new segment
+        }
+    }
+}
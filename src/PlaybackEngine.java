@@ -0,0 +1,562 @@
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// The audio player, independent of Swing. All playback state is owned by one engine thread:
+// public methods only enqueue commands, and the engine thread runs them between buffer writes.
+// It is the only thread that opens, writes to or closes a line, so no sequence of
+// play/pause/seek/next calls can leave two decoders feeding audio at once.
+// Listeners receive immutable snapshots; they are called on the engine thread.
+class PlaybackEngine {
+
+    enum State { STOPPED, PLAYING, PAUSED }
+
+    record Snapshot(State state, int index, File track, long positionMicros, long durationMicros) {
+        Snapshot withPosition(long micros) {
+            return new Snapshot(state, index, track, micros, durationMicros);
+        }
+    }
+
+    interface Listener {
+        void playbackChanged(Snapshot snapshot);
+
+        default void playbackFailed(File track, String message) {}
+    }
+
+    private static final int BUFFER_BYTES = 4096;
+    private static final int PREFETCH_BYTES = 256 * 1024;
+    // loudness normalization: ReplayGain 2 reference level, never pushing true peak past -1 dBTP
+    private static final float TARGET_LUFS = -18f;
+    private static final float PEAK_CEILING_DB = -1f;
+    private static final float MAX_BOOST_DB = 12f;
+
+    private final LibraryIndex library;
+    private final BlockingQueue<Runnable> commands = new LinkedBlockingQueue<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "track-prefetch-thread");
+        t.setDaemon(true);
+        return t;
+    });
+    // builds MP3 seek indexes, a read of every frame header, so a scan never delays a prefetch
+    private final ExecutorService seekIndexExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "seek-index-thread");
+        t.setDaemon(true);
+        return t;
+    });
+    // fills the PCM cache with the next track; lowest priority so it never competes with playback
+    private final ExecutorService cacheExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "pcm-cache-thread");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final PcmCache pcmCache = PcmCache.fromSystemProperties();
+
+    // ===== engine thread state =====
+    private File[] queue = new File[0];
+    private int index = -1;
+    private State state = State.STOPPED;
+    private boolean gapless = true;
+    private long crossfadeMicros = Long.getLong("playback.crossfadeMs", 0) * 1000; // 0: no crossfade
+    private boolean normalize = true;
+    private float normalizationDb;      // applied to the current track
+
+    private TrackStream stream;         // streaming mode (MP3, long WAV)
+    private SourceDataLine line;
+    private LongSupplier lineFrames;    // line's played-frame counter, one instance per opened line
+    private long lineFramesWritten;     // frames handed to the line since it was opened or flushed
+    private long framesRead;            // frames read from stream since it started (or was seeked)
+    private boolean endFadeTried;       // the crossfade into the next track was attempted for this stream
+    private final Crossfade crossfade = new Crossfade(BUFFER_BYTES);
+    private final SampleTap tap = new SampleTap();
+    private boolean draining;           // source ended, waiting for the line to play out
+    private long drainDeadline;
+    private Runnable afterDrain;
+    private long durationMicros = -1;
+    private final byte[] buffer = new byte[BUFFER_BYTES];
+    private PcmCache.Builder capture;   // collects the playing track's PCM for the cache
+    private final DspChain dsp = new DspChain();
+    private final SmoothedGain volumeGain = new SmoothedGain();
+    private final SmoothedGain normalizationGain = new SmoothedGain();
+
+    private record PrefetchedTrack(int index, File file, Future<TrackStream> stream) {}
+    private PrefetchedTrack pending;
+
+    private final PlaybackClock clock = new PlaybackClock(() -> commands.add(this::publish));
+    private volatile Snapshot snapshot = new Snapshot(State.STOPPED, -1, null, 0, -1);
+
+    PlaybackEngine(LibraryIndex library) {
+        this.library = library;
+        volumeGain.setVolume(0.8f);
+        dsp.add(normalizationGain);
+        dsp.add(volumeGain);
+        Thread t = new Thread(this::run, "playback-engine-thread");
+        t.setDaemon(true);
+        t.setPriority(Thread.MAX_PRIORITY); // ahead of the analysis and cache threads
+        t.start();
+    }
+
+    // ===== commands (any thread) =====
+
+    void addListener(Listener l) { listeners.add(l); }
+
+    // position updates pushed rateHz times a second at most, and only when the displayed value changes
+    PlaybackClock.Subscription subscribe(PlaybackClock.Subscriber s, int rateHz) { return clock.subscribe(s, rateHz); }
+
+    void play(File[] files, int startIndex) {
+        File[] copy = files.clone();
+        commands.add(() -> { queue = copy; open(startIndex); });
+    }
+
+    void next() { commands.add(() -> skipTo(nextIndex())); }
+
+    void previous() { commands.add(() -> { if (queue.length > 0) skipTo((index - 1 + queue.length) % queue.length); }); }
+
+    void togglePause() { commands.add(() -> { if (state == State.PLAYING) doPause(); else if (state == State.PAUSED) doResume(); }); }
+
+    void pause() { commands.add(this::doPause); }
+
+    void resume() { commands.add(this::doResume); }
+
+    void stop() { commands.add(this::doStop); }
+
+    void seek(long micros) { commands.add(() -> doSeek(micros)); }
+
+    // 0..1 slider value
+    void setVolume(float value) {
+        volumeGain.setVolume(value); // takes effect on the next buffer, ramped
+    }
+
+    // software processing applied to streamed audio after the volume stage
+    DspChain dsp() { return dsp; }
+
+    // streamed audio as it goes to the line, for visualizers
+    SampleTap sampleTap() { return tap; }
+
+    // play every track at the same integrated loudness, using LibraryAnalyzer's loudness results from the library
+    void setNormalization(boolean on) { commands.add(() -> { normalize = on; applyNormalization(currentTrack()); }); }
+
+    // overlap consecutive tracks by this long, for natural track ends and next/previous alike; 0 turns it off
+    void setCrossfade(long millis) { commands.add(() -> { crossfadeMicros = Math.max(0, millis) * 1000; if (millis <= 0) crossfade.close(); }); }
+
+    void setGapless(boolean on) { commands.add(() -> { gapless = on; if (on) prefetchNext(); else discardPending(); }); }
+
+    // the song list changed on disk; files are sorted by LibraryIndex.PATH_ORDER, like every
+    // playlist. The engine's own current file is found again in the new list on the engine thread
+    // (it may already be past the track the UI last saw, after a gapless join); if it was deleted,
+    // the index points just before where it was so "next" continues from there.
+    void updateQueue(File[] files) {
+        File[] copy = files.clone();
+        commands.add(() -> {
+            File current = currentTrack();
+            queue = copy;
+            if (current != null) {
+                int pos = Arrays.binarySearch(queue, current,
+                        (a, b) -> LibraryIndex.PATH_ORDER.compare(a.getPath(), b.getPath()));
+                index = pos >= 0 ? pos : -pos - 2;
+            } else {
+                index = -1;
+            }
+            if (pending != null && (queue.length == 0 || pending.index != nextIndex() || !queue[pending.index].equals(pending.file))) {
+                prefetchNext();
+            }
+            publish();
+        });
+    }
+
+    PcmCache.Stats pcmCacheStats() { return pcmCache.stats(); }
+
+    // latest snapshot with an up-to-date position; safe from any thread
+    Snapshot snapshot() {
+        return snapshot.withPosition(clock.positionMicros());
+    }
+
+    // ===== engine loop =====
+
+    private void run() {
+        while (true) {
+            try {
+                // while audio is flowing, commands are picked up between buffer writes;
+                // otherwise the thread sleeps on the queue until the next command
+                boolean pumping = state == State.PLAYING && stream != null;
+                Runnable command = pumping ? commands.poll() : commands.take();
+                if (command != null) {
+                    command.run();
+                } else {
+                    pump();
+                }
+            } catch (InterruptedException ex) {
+                return;
+            } catch (Exception ex) {
+                fail(ex);
+            }
+        }
+    }
+
+    private void pump() throws Exception {
+        if (draining) {
+            if (line.available() >= line.getBufferSize() || System.currentTimeMillis() > drainDeadline) {
+                draining = false;
+                afterDrain.run();
+                return;
+            }
+            Runnable command = commands.poll(10, TimeUnit.MILLISECONDS);
+            if (command != null) command.run();
+            return;
+        }
+        if (crossfadeMicros > 0 && gapless && !endFadeTried && !crossfade.isActive()
+                && durationMicros > 0 && durationMicros - streamMicros() <= crossfadeMicros) {
+            endFadeTried = true;
+            TrackStream next = queue.length > 0 ? streamFor(nextIndex()) : null;
+            if (crossfadeTo(nextIndex(), next)) return;
+            if (next != null) next.close();
+        }
+        int n = stream.read(buffer, 0, buffer.length);
+        if (n == -1) {
+            if (capture != null) capture.commit();
+            capture = null;
+            crossfade.close(); // a track shorter than the fade
+            endOfStream();
+            return;
+        }
+        if (capture != null && !capture.append(buffer, 0, n)) capture = null;
+        framesRead += n / stream.format.getFrameSize();
+        if (crossfade.isActive()) crossfade.mix(buffer, n, stream.format);
+        dsp.process(buffer, 0, n, stream.format);
+        line.write(buffer, 0, n);
+        lineFramesWritten += n / stream.format.getFrameSize();
+        if (tap.isEnabled()) tap.write(buffer, 0, n, stream.format, lineFramesWritten - lineFrames.getAsLong());
+    }
+
+    private void endOfStream() throws Exception {
+        if (gapless && queue.length > 0) {
+            // continue into the prefetched track on the same line, no flush, no gap
+            TrackStream next = streamFor(nextIndex());
+            if (next != null && stream.canJoin(next)) {
+                index = nextIndex();
+                startStream(next, false);
+                return;
+            }
+            if (next != null) next.close();
+            drainThen(() -> open(nextIndex()));
+        } else {
+            drainThen(this::doStop);
+        }
+    }
+
+    private void drainThen(Runnable then) {
+        draining = true;
+        afterDrain = then;
+        long bufferedMicros = (long) (line.getBufferSize() * 1_000_000.0
+                / (line.getFormat().getFrameRate() * line.getFormat().getFrameSize()));
+        drainDeadline = System.currentTimeMillis() + bufferedMicros / 1000 + 250;
+    }
+
+    // ===== command handlers (engine thread) =====
+
+    private void open(int i) {
+        if (queue.length == 0 || i < 0 || i >= queue.length) return;
+        open(i, streamFor(i));
+    }
+
+    // plays queue[i] from next if it is a stream for it, else opens the file
+    private void open(int i, TrackStream next) {
+        index = i;
+        File file = queue[i];
+        try {
+            if (next == null) next = TrackStream.open(file);
+            try {
+                startStream(next, true);
+            } catch (IllegalArgumentException | LineUnavailableException ex) {
+                // no line for this PCM format (e.g. 24-bit or float): play it converted to 16-bit
+                Pcm16TrackStream converted = Pcm16TrackStream.of(next);
+                if (converted == null) throw ex;
+                stream = null;
+                startStream(converted, true);
+            }
+        } catch (Exception ex) {
+            doStop();
+            for (Listener l : listeners) l.playbackFailed(file, "Cannot play: " + ex.getMessage());
+        }
+    }
+
+    private void startStream(TrackStream next, boolean flush) throws Exception {
+        draining = false;
+        crossfade.close();
+        if (stream != null) stream.close();
+        stream = next;
+        framesRead = 0;
+        endFadeTried = false;
+        pcmCache.started(next);
+        // only a complete decode from the first sample is worth caching
+        capture = next instanceof Mp3TrackStream && next.startMicros == 0 ? pcmCache.builder(next.file, next.format) : null;
+        boolean joined = false;
+        if (line == null || !line.getFormat().matches(next.format)) {
+            closeLine();
+            line = (SourceDataLine) AudioSystem.getLine(new DataLine.Info(SourceDataLine.class, next.format));
+            line.open(next.format);
+            SourceDataLine opened = line;
+            lineFrames = opened::getLongFramePosition;
+            lineFramesWritten = 0;
+        } else if (flush) {
+            flushLine();
+        } else {
+            joined = true; // the previous track is still in the line's buffer ahead of this one
+        }
+        line.start();
+        // the new track's first buffer is the first to go through the DSP, so the gain can switch here
+        applyNormalization(next.file);
+        durationMicros = durationOf(next);
+        clock.start(segmentFor(next), joined);
+        state = State.PLAYING;
+        scanSeekIndex(next);
+        prefetchNext();
+        publish();
+    }
+
+    // next/previous: crossfade when it's on, else switch on the open line if the track is prefetched
+    private void skipTo(int target) {
+        if (queue.length == 0) return;
+        // looked up once; whichever way the switch goes below plays this stream
+        TrackStream next = streamFor(target);
+        try {
+            if (state == State.PLAYING && stream != null && crossfadeMicros > 0) {
+                if (next == null) next = TrackStream.open(queue[target]);
+                if (crossfadeTo(target, next)) return;
+            }
+            if (state == State.PLAYING && stream != null && gapless && next != null && stream.canJoin(next)) {
+                // prefetched already: switch on the open line, dropping only what it still buffers
+                index = target;
+                startStream(next, true);
+                return;
+            }
+        } catch (Exception ex) {
+            fail(ex);
+            return;
+        }
+        open(target, next);
+    }
+
+    // start queue[target] mixed over the current track; false (next left to the caller) when they
+    // can't share the line. The line isn't flushed: the fade begins right after the audio it still holds.
+    private boolean crossfadeTo(int target, TrackStream next) throws Exception {
+        if (next == null || !stream.canJoin(next)) return false;
+        TrackStream outgoing = stream;
+        float outgoingDb = normalizationDb;
+        float level = crossfade.incomingLevel();
+        stream = null; // the crossfade owns it from here
+        capture = null;
+        index = target;
+        startStream(next, false);
+        long frames = (long) (crossfadeMicros * (double) next.format.getFrameRate() / 1_000_000.0);
+        crossfade.start(outgoing, frames, level * (float) Math.pow(10, (outgoingDb - normalizationDb) / 20));
+        return true;
+    }
+
+    private void doPause() {
+        if (state != State.PLAYING) return;
+        if (line != null) line.stop();
+        clock.invalidate();
+        state = State.PAUSED;
+        publish();
+    }
+
+    private void doResume() {
+        if (state != State.PAUSED) return;
+        state = State.PLAYING;
+        if (line != null) line.start();
+        if (draining) drainThen(afterDrain); // the line holds the same audio it did before the pause
+        clock.invalidate();
+        publish();
+    }
+
+    private void doStop() {
+        capture = null;
+        closeStream();
+        closeLine();
+        discardPending();
+        draining = false;
+        state = State.STOPPED;
+        clock.reset();
+        durationMicros = -1;
+        publish();
+    }
+
+    private void doSeek(long micros) {
+        if (state == State.STOPPED) return;
+        if (stream == null) return;
+        try {
+            TrackStream seeked = stream.seekTo(micros);
+            stream.close();
+            stream = seeked;
+            capture = null;
+            draining = false;
+            framesRead = 0;
+            crossfade.close(); // the old track would carry on from where the line was
+            flushLine();
+            clock.start(segmentFor(seeked), false);
+            publish();
+        } catch (Exception ex) {
+            for (Listener l : listeners) l.playbackFailed(stream.file, "Cannot seek: " + ex.getMessage());
+        }
+    }
+
+    private void fail(Exception ex) {
+        File track = currentTrack();
+        doStop();
+        for (Listener l : listeners) l.playbackFailed(track, "Cannot play: " + ex.getMessage());
+    }
+
+    // ===== gapless prefetch =====
+
+    private int nextIndex() {
+        return queue.length == 0 ? -1 : (index + 1) % queue.length;
+    }
+
+    // open and decode the start of the next song while the current one plays
+    private void prefetchNext() {
+        discardPending();
+        if (!gapless || queue.length == 0 || index < 0) return;
+        int i = nextIndex();
+        File file = queue[i];
+        Future<TrackStream> future = prefetchExecutor.submit(() -> {
+            TrackStream cached = pcmCache.open(file);
+            if (cached != null) return cached;
+            TrackStream s = TrackStream.open(file);
+            try {
+                s.prefetch(PREFETCH_BYTES);
+            } catch (Exception ex) {
+                s.close();
+                throw ex;
+            }
+            scanSeekIndex(s); // ready by the time the track plays, without holding up takePending
+            return s;
+        });
+        pending = new PrefetchedTrack(i, file, future);
+        if (PcmCache.isCacheable(file) && pcmCache.isEnabled()) cacheExecutor.submit(() -> pcmCache.fill(file));
+    }
+
+    // stream for queue[i]: from the PCM cache if it's there (dropping the prefetched decoder),
+    // else the prefetched stream, else null
+    private TrackStream streamFor(int i) {
+        TrackStream prefetched = takePending(i);
+        TrackStream cached = pcmCache.open(queue[i]);
+        if (cached == null) return prefetched;
+        if (prefetched != null) prefetched.close();
+        return cached;
+    }
+
+    // the prefetched stream if it is for index i (waits for it to finish decoding), else null
+    private TrackStream takePending(int i) {
+        PrefetchedTrack p = pending;
+        if (p == null || p.index != i || i >= queue.length || !queue[i].equals(p.file)) return null;
+        pending = null;
+        try {
+            return p.stream.get();
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    private void discardPending() {
+        PrefetchedTrack p = pending;
+        pending = null;
+        if (p == null) return;
+        // queued behind the prefetch on the same executor, so the stream is closed once it exists
+        prefetchExecutor.submit(() -> {
+            try { p.stream.get().close(); } catch (Exception ignored) {}
+        });
+    }
+
+    // exact frame table for seeking; until it's ready seeks use the file's TOC
+    private void scanSeekIndex(TrackStream s) {
+        if (!(s instanceof Mp3TrackStream mp3) || mp3.info == null) return;
+        seekIndexExecutor.submit(() -> {
+            try { Mp3SeekIndex.scan(mp3.file, mp3.info); } catch (Exception ignored) {}
+        });
+    }
+
+    // ===== helpers =====
+
+    // how far into the track the next read is
+    private long streamMicros() {
+        return stream.startMicros + (long) (framesRead * 1_000_000.0 / stream.format.getFrameRate());
+    }
+
+    // duration from the library index; the stream only works it out when the file isn't indexed
+    private long durationOf(TrackStream s) {
+        LibraryIndex.Entry entry = library != null ? library.get(s.file) : null;
+        return (entry != null && entry.durationMicros > 0) ? entry.durationMicros : s.durationMicros();
+    }
+
+    // the next frame written to the line will be heard at s.startMicros
+    private PlaybackClock.Segment segmentFor(TrackStream s) {
+        return new PlaybackClock.Segment(lineFrames, lineFramesWritten, s.startMicros,
+                s.format.getFrameRate(), durationMicros, index, s.file);
+    }
+
+    // drop buffered audio; from here on written == played, whatever the line does with its counter
+    private void flushLine() {
+        line.flush();
+        lineFramesWritten = line.getLongFramePosition();
+    }
+
+    private File currentTrack() {
+        return index >= 0 && index < queue.length ? queue[index] : null;
+    }
+
+    private void applyNormalization(File track) {
+        normalizationDb = normalize && track != null ? normalizationDb(library != null ? library.get(track) : null) : 0f;
+        normalizationGain.jumpTo((float) Math.pow(10, normalizationDb / 20));
+    }
+
+    // 0 until the track has been analyzed (or when it was silent or unreadable)
+    static float normalizationDb(LibraryIndex.Entry entry) {
+        LibraryIndex.Loudness l = entry != null ? entry.loudness : null;
+        if (l == null || !Float.isFinite(l.integratedLufs())) return 0f;
+        float db = Math.min(TARGET_LUFS - l.integratedLufs(), MAX_BOOST_DB);
+        if (Float.isFinite(l.truePeakDb())) db = Math.min(db, PEAK_CEILING_DB - l.truePeakDb());
+        return db;
+    }
+
+    private void closeStream() {
+        crossfade.close();
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    private void closeLine() {
+        if (line != null) {
+            try { line.stop(); } catch (Exception ignored) {}
+            try { line.close(); } catch (Exception ignored) {}
+            line = null;
+            lineFrames = null;
+        }
+    }
+
+    // right after a gapless join this still describes the track being heard; the clock
+    // republishes once the new one becomes audible
+    private void publish() {
+        PlaybackClock.Segment audible = clock.audibleSegment();
+        Snapshot s = audible != null
+                ? new Snapshot(state, audible.index(), audible.track(), clock.positionMicros(), audible.durationMicros())
+                : new Snapshot(state, index, currentTrack(), 0, durationMicros);
+        snapshot = s;
+        for (Listener l : listeners) l.playbackChanged(s);
+    }
+}
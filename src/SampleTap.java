@@ -0,0 +1,60 @@
+import javax.sound.sampled.AudioFormat;
+
+// What the engine hands to the line, as a mono ring for visualizers. The engine thread is the
+// only writer; it never blocks or allocates here (the conversion array grows once) and a reader
+// never holds it up: a reader copies its window and then checks the writer hasn't lapped it.
+// Costs nothing while no visualizer is enabled.
+class SampleTap {
+
+    private static final int SIZE = 1 << 16;   // ~1.5 s at 44.1 kHz
+    private static final long IDLE_NANOS = 100_000_000L;
+
+    private final float[] ring = new float[SIZE];
+    private float[] work = new float[0];
+    private volatile long head;                 // samples written so far
+    private volatile long queued;               // of those, still waiting in the line
+    private volatile float sampleRate = 44100f;
+    private volatile long lastWrite;
+    private volatile boolean enabled;
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    float sampleRate() {
+        return sampleRate;
+    }
+
+    // engine thread: len bytes just written to the line, which now holds queuedFrames unplayed frames
+    void write(byte[] buf, int off, int len, AudioFormat format, long queuedFrames) {
+        int channels = format.getChannels();
+        int n = len / format.getFrameSize() * channels;
+        if (work.length < n) work = new float[n];
+        if (DspChain.toFloats(buf, off, len, format, work) < 0) return;
+        long h = head;
+        for (int i = 0; i < n; i += channels) {
+            float sum = 0;
+            for (int c = 0; c < channels; c++) sum += work[i + c];
+            ring[(int) (h++ & (SIZE - 1))] = sum / channels;
+        }
+        sampleRate = format.getSampleRate();
+        queued = Math.max(0, queuedFrames);
+        lastWrite = System.nanoTime();
+        head = h; // publishes the samples above
+    }
+
+    // copies the count samples that are audible now into out; false when nothing is playing
+    // (no writes for a while) or the writer overwrote the window during the copy
+    boolean read(float[] out, int count) {
+        if (count > SIZE / 2 || System.nanoTime() - lastWrite > IDLE_NANOS) return false;
+        long h = head;
+        long start = h - Math.min(queued, SIZE / 2 - count) - count;
+        if (start < 0) return false;
+        for (int i = 0; i < count; i++) out[i] = ring[(int) ((start + i) & (SIZE - 1))];
+        return head - start <= SIZE;
+    }
+}
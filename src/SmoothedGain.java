@@ -0,0 +1,64 @@
+// Volume as a DspChain stage, so it works on mixers without MASTER_GAIN. The gain glides
+// to its target with a short per-sample exponential ramp instead of jumping, which is what
+// made dragging the volume slider crackle ("zipper noise").
+class SmoothedGain implements DspChain.Processor {
+
+    private static final float RAMP_SECONDS = 0.015f;  // time constant of the glide
+    private static final float MIN_DB = -60f;          // slider just above 0
+
+    private volatile float target = 1f;
+    private float gain = 1f;
+    private float coefRate;      // sample rate coef was computed for
+    private float coef;
+
+    // 0..1 slider value, on the same 0.7 power curve the MASTER_GAIN control used
+    void setVolume(float value) {
+        setGain(volumeToGain(value));
+    }
+
+    // linear gain; ramps there from the current value
+    void setGain(float linear) {
+        target = Math.max(0f, linear);
+    }
+
+    // linear gain with no ramp, for a track boundary where there is nothing to glide from (engine thread)
+    void jumpTo(float linear) {
+        target = Math.max(0f, linear);
+        gain = target;
+    }
+
+    static float volumeToGain(float value) {
+        if (value <= 0f) return 0f;
+        // Logarithmic scale: 0 slider = min, 1 slider = max
+        // Using power function for smoother progression
+        float logVal = (float) Math.pow(Math.min(1f, value), 0.7f); // 0.7 gives better low-end control
+        float db = MIN_DB + (0f - MIN_DB) * logVal;
+        return (float) Math.pow(10, db / 20);
+    }
+
+    @Override
+    public boolean isBypassed() {
+        return gain == 1f && target == 1f;
+    }
+
+    @Override
+    public void process(float[] samples, int frames, int channels, float sampleRate) {
+        float t = target;
+        float g = gain;
+        if (g == t) {
+            for (int i = 0, n = frames * channels; i < n; i++) samples[i] *= g;
+            return;
+        }
+        if (sampleRate != coefRate) {
+            coef = (float) (1 - Math.exp(-1 / (RAMP_SECONDS * sampleRate)));
+            coefRate = sampleRate;
+        }
+        int i = 0;
+        for (int f = 0; f < frames; f++) {
+            g += (t - g) * coef;
+            for (int c = 0; c < channels; c++) samples[i++] *= g;
+        }
+        // close enough to be inaudible: land exactly so the constant path (or bypass) takes over
+        gain = Math.abs(t - g) < 1e-4f ? t : g;
+    }
+}
@@ -0,0 +1,95 @@
+import javax.swing.AbstractListModel;
+import java.util.Arrays;
+import java.util.List;
+
+// The song list's model: the names of the open mood in one array, replaced in one go when a
+// mood opens (two list events instead of one per song), optionally narrowed to the rows found
+// by a search. Rows of the playlist (currentFiles) are model rows; rows shown by the JList are
+// view rows, the same while no filter is set. EDT only.
+final class SongListModel extends AbstractListModel<String> {
+
+    private String[] names = new String[0];
+    private int[] filter;   // model rows shown, ascending; null = all
+
+    // every name, for building the search index
+    String[] names() {
+        return names.clone();
+    }
+
+    // number of songs, shown or not
+    int rowCount() {
+        return names.length;
+    }
+
+    void setAll(String[] names) {
+        replace(names, null);
+    }
+
+    // shows only the given model rows (ascending), or everything for null
+    void setFilter(int[] rows) {
+        replace(names, rows);
+    }
+
+    boolean isFiltered() {
+        return filter != null;
+    }
+
+    // removes model rows from..to (inclusive); drops the filter, whose rows no longer apply
+    void removeRange(int from, int to) {
+        String[] updated = new String[names.length - (to - from + 1)];
+        System.arraycopy(names, 0, updated, 0, from);
+        System.arraycopy(names, to + 1, updated, from, names.length - to - 1);
+        if (filter != null) {
+            replace(updated, null);
+            return;
+        }
+        names = updated;
+        fireIntervalRemoved(this, from, to);
+    }
+
+    // inserts names at model row; drops the filter, whose rows no longer apply
+    void addAll(int row, List<String> added) {
+        if (added.isEmpty()) return;
+        String[] updated = new String[names.length + added.size()];
+        System.arraycopy(names, 0, updated, 0, row);
+        for (int i = 0; i < added.size(); i++) updated[row + i] = added.get(i);
+        System.arraycopy(names, row, updated, row + added.size(), names.length - row);
+        if (filter != null) {
+            replace(updated, null);
+            return;
+        }
+        names = updated;
+        fireIntervalAdded(this, row, row + added.size() - 1);
+    }
+
+    int modelIndex(int viewRow) {
+        if (viewRow < 0) return -1;
+        return filter != null ? filter[viewRow] : viewRow;
+    }
+
+    // the view row showing model row, or -1 if it's filtered out
+    int viewIndex(int modelRow) {
+        if (filter == null || modelRow < 0) return modelRow;
+        int i = Arrays.binarySearch(filter, modelRow);
+        return i >= 0 ? i : -1;
+    }
+
+    @Override
+    public int getSize() {
+        return filter != null ? filter.length : names.length;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        return names[modelIndex(index)];
+    }
+
+    private void replace(String[] names, int[] filter) {
+        int old = getSize();
+        this.names = names;
+        this.filter = filter;
+        if (old > 0) fireIntervalRemoved(this, 0, old - 1);
+        int size = getSize();
+        if (size > 0) fireIntervalAdded(this, 0, size - 1);
+    }
+}
@@ -0,0 +1,149 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Spectrum bars for whatever the engine is playing. A fixed-rate loop on its own thread reads
+// the audible window from the SampleTap, runs one reusable FFT and updates the bar levels;
+// the EDT only fills rectangles. repaint() covers just this component, and a frame is skipped
+// rather than queued when the previous one hasn't been painted yet. The loop (and the tap)
+// only run while the component is showing.
+class SpectrumVisualizer extends JComponent {
+
+    private static final int FPS = 60;
+    private static final int FFT_SIZE = 2048;
+    private static final int BARS = 48;
+    private static final float MIN_HZ = 40f, MAX_HZ = 16000f;
+    private static final float FLOOR_DB = -72f;
+    private static final float DECAY = 0.86f;          // per frame once the sound drops
+    private static final float PEAK_FALL = 0.008f;     // per frame
+    private static final int GAP = 2;
+
+    private final SampleTap tap;
+    private final Fft fft = new Fft(FFT_SIZE);
+    private final float[] window = fft.hann();
+    private final float[] samples = new float[FFT_SIZE], re = new float[FFT_SIZE], im = new float[FFT_SIZE];
+    private final int[] bandStart = new int[BARS + 1];
+    private float bandRate;
+    private final float windowGain;
+
+    // written by the analysis thread, read by paint; a float is never torn, and a bar from the
+    // next frame showing up early is invisible
+    private final float[] levels = new float[BARS];
+    private final float[] peaks = new float[BARS];
+    private final Color[] colors = new Color[BARS];
+    private final Color peakColor = new Color(255, 255, 255, 170);
+    private volatile boolean paintPending;
+
+    private final ScheduledExecutorService loop = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "spectrum-thread");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledFuture<?> running;
+
+    SpectrumVisualizer(SampleTap tap) {
+        this.tap = tap;
+        setOpaque(false);
+        float sum = 0;
+        for (float w : window) sum += w;
+        windowGain = 2f / sum;
+        for (int i = 0; i < BARS; i++) {
+            float hue = 0.42f - 0.42f * i / (BARS - 1); // green at the bass end to red at the top
+            colors[i] = Color.getHSBColor(hue, 0.75f, 0.95f);
+        }
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) showingChanged();
+        });
+    }
+
+    private void showingChanged() {
+        boolean showing = isShowing();
+        tap.setEnabled(showing);
+        if (showing && running == null) {
+            running = loop.scheduleAtFixedRate(this::tick, 0, 1_000_000 / FPS, TimeUnit.MICROSECONDS);
+        } else if (!showing && running != null) {
+            running.cancel(false);
+            running = null;
+        }
+    }
+
+    private void tick() {
+        boolean playing = tap.read(samples, FFT_SIZE);
+        boolean moving = playing;
+        if (playing) {
+            analyze();
+        } else {
+            for (int b = 0; b < BARS; b++) {
+                levels[b] *= DECAY;
+                if (levels[b] < 0.002f) levels[b] = 0;
+            }
+        }
+        for (int b = 0; b < BARS; b++) {
+            peaks[b] = Math.max(levels[b], peaks[b] - PEAK_FALL);
+            if (peaks[b] > 0 || levels[b] > 0) moving = true;
+        }
+        if (moving && !paintPending) {
+            paintPending = true;
+            repaint();
+        }
+    }
+
+    private void analyze() {
+        float rate = tap.sampleRate();
+        if (rate != bandRate) computeBands(rate);
+        for (int i = 0; i < FFT_SIZE; i++) {
+            re[i] = samples[i] * window[i];
+            im[i] = 0;
+        }
+        fft.transform(re, im);
+        for (int b = 0; b < BARS; b++) {
+            float max = 0;
+            for (int k = bandStart[b]; k < bandStart[b + 1]; k++) {
+                float m = re[k] * re[k] + im[k] * im[k];
+                if (m > max) max = m;
+            }
+            float db = 10 * (float) Math.log10(max * windowGain * windowGain + 1e-12f);
+            float level = Math.max(0f, Math.min(1f, (db - FLOOR_DB) / -FLOOR_DB));
+            // rise at once, fall smoothly
+            levels[b] = Math.max(level, levels[b] * DECAY);
+        }
+    }
+
+    // logarithmic bands between MIN_HZ and MAX_HZ, at least one FFT bin each
+    private void computeBands(float rate) {
+        float binHz = rate / FFT_SIZE;
+        int maxBin = FFT_SIZE / 2 - 1;
+        for (int b = 0; b <= BARS; b++) {
+            double hz = MIN_HZ * Math.pow(MAX_HZ / MIN_HZ, (double) b / BARS);
+            bandStart[b] = (int) Math.min(maxBin, Math.round(hz / binHz));
+            if (b > 0 && bandStart[b] <= bandStart[b - 1]) bandStart[b] = Math.min(maxBin + 1, bandStart[b - 1] + 1);
+        }
+        bandRate = rate;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        paintPending = false;
+        int w = getWidth(), h = getHeight();
+        float barWidth = (float) (w - GAP * (BARS - 1)) / BARS;
+        if (barWidth < 1) return;
+        for (int b = 0; b < BARS; b++) {
+            int x = Math.round(b * (barWidth + GAP));
+            int bw = Math.max(1, Math.round((b + 1) * (barWidth + GAP) - GAP) - x);
+            int bh = Math.round(levels[b] * h);
+            if (bh > 0) {
+                g.setColor(colors[b]);
+                g.fillRect(x, h - bh, bw, bh);
+            }
+            int py = h - Math.round(peaks[b] * h);
+            if (peaks[b] > 0.01f) {
+                g.setColor(peakColor);
+                g.fillRect(x, Math.max(0, py - 2), bw, 2);
+            }
+        }
+    }
+}
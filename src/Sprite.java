@@ -0,0 +1,106 @@
+import javax.swing.JComponent;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+// A part of a custom component that looks the same on most repaints (a button body, a slider
+// track or thumb), rendered once per state into an image and afterwards only copied. The images
+// are dropped when the size or the owner's screen scale changes. They are in device pixels, so
+// they stay sharp on HiDPI, and compatible with the screen, so Java2D keeps them in video memory.
+// Checking and copying allocate nothing, so a steady-state repaint makes no garbage.
+// -Dui.sprites=false paints everything live instead, for comparison. EDT only.
+final class Sprite {
+
+    static final boolean ENABLED = !"false".equals(System.getProperty("ui.sprites"));
+
+    // paints state into a w x h area at the origin
+    interface Painter {
+        void paint(Graphics2D g, int w, int h, int state);
+    }
+
+    private final JComponent owner;
+    private final Painter painter;
+    private final BufferedImage[] images;
+    private int width, height;
+    private GraphicsConfiguration gc;
+    private double scale = 1;
+
+    // states are 0 .. states - 1
+    Sprite(JComponent owner, int states, Painter painter) {
+        this.owner = owner;
+        this.painter = painter;
+        this.images = new BufferedImage[states];
+    }
+
+    void draw(Graphics2D g, int x, int y, int w, int h, int state) {
+        drawScaled(g, x, y, w, h, state, w, h);
+    }
+
+    // rendered at w x h, drawn stretched to dw x dh (a pressed button)
+    void drawScaled(Graphics2D g, int x, int y, int w, int h, int state, int dw, int dh) {
+        if (w <= 0 || h <= 0) return;
+        if (!ENABLED) {
+            live(g, x, y, dw, dh, dw, dh, state);
+            return;
+        }
+        g.drawImage(image(w, h, state), x, y, dw, dh, null);
+    }
+
+    // only the leftmost part pixels (the played part of a track)
+    void drawLeft(Graphics2D g, int x, int y, int w, int h, int state, int part) {
+        if (w <= 0 || h <= 0 || part <= 0) return;
+        part = Math.min(part, w);
+        if (!ENABLED) {
+            live(g, x, y, part, h, w, h, state);
+            return;
+        }
+        BufferedImage img = image(w, h, state);
+        g.drawImage(img, x, y, x + part, y + h, 0, 0, (int) Math.round(part * scale), img.getHeight(), null);
+    }
+
+    private void live(Graphics2D g, int x, int y, int clipW, int clipH, int w, int h, int state) {
+        Graphics2D c = (Graphics2D) g.create(x, y, clipW, clipH);
+        painter.paint(c, w, h, state);
+        c.dispose();
+    }
+
+    // the painter's output changed (e.g. a new font): render again on the next draw
+    void invalidate() {
+        clear();
+    }
+
+    private BufferedImage image(int w, int h, int state) {
+        GraphicsConfiguration current = owner.getGraphicsConfiguration();
+        if (current != gc) {
+            gc = current;
+            double s = gc != null ? gc.getDefaultTransform().getScaleX() : 1;
+            if (s != scale) clear();
+            scale = s;
+        }
+        if (w != width || h != height) {
+            clear();
+            width = w;
+            height = h;
+        }
+        BufferedImage img = images[state];
+        if (img == null) images[state] = img = render(w, h, state);
+        return img;
+    }
+
+    private BufferedImage render(int w, int h, int state) {
+        int iw = (int) Math.ceil(w * scale), ih = (int) Math.ceil(h * scale);
+        BufferedImage img = gc != null ? gc.createCompatibleImage(iw, ih, Transparency.TRANSLUCENT)
+                : new BufferedImage(iw, ih, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = img.createGraphics();
+        g.scale(scale, scale);
+        painter.paint(g, w, h, state);
+        g.dispose();
+        return img;
+    }
+
+    private void clear() {
+        Arrays.fill(images, null);
+    }
+}
@@ -0,0 +1,75 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+// Timings of the startup phases, from any thread, in milliseconds since the JVM started.
+// Printed once startup is done when run with -Dstartup.report=true; -Dstartup.report=exit
+// also quits afterwards, for scripted measurements and for an AppCDS training run.
+final class StartupReport {
+
+    private record Phase(String name, String thread, long startNanos, long endNanos) {}
+
+    private static final String MODE = System.getProperty("startup.report", "");
+    private static final ConcurrentLinkedQueue<Phase> phases = new ConcurrentLinkedQueue<>();
+    private static long mainNanos = System.nanoTime();
+    private static volatile boolean done;
+
+    private StartupReport() {}
+
+    // first thing in main()
+    static void begin() {
+        mainNanos = System.nanoTime();
+    }
+
+    static <T> T phase(String name, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            phases.add(new Phase(name, Thread.currentThread().getName(), start, System.nanoTime()));
+        }
+    }
+
+    static void phase(String name, Runnable work) {
+        phase(name, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // a point in time, e.g. the first frame
+    static void mark(String name) {
+        long now = System.nanoTime();
+        phases.add(new Phase(name, Thread.currentThread().getName(), now, now));
+    }
+
+    // startup is complete: print the report (once) if asked for
+    static void finish() {
+        if (done || MODE.isEmpty() || MODE.equals("false")) return;
+        done = true;
+        System.out.println(format());
+        if (MODE.equals("exit")) System.exit(0);
+    }
+
+    static String format() {
+        // JVM start to main(); the management classes are only loaded now, after startup
+        long base = ManagementFactory.getRuntimeMXBean().getUptime() - (System.nanoTime() - mainNanos) / 1_000_000;
+        List<Phase> sorted = new ArrayList<>(phases);
+        sorted.sort(Comparator.comparingLong(Phase::startNanos));
+        StringBuilder sb = new StringBuilder();
+        sb.append("Startup (ms since JVM start, main() at ").append(base).append("):\n");
+        for (Phase p : sorted) {
+            long from = base + (p.startNanos - mainNanos) / 1_000_000, to = base + (p.endNanos - mainNanos) / 1_000_000;
+            if (p.startNanos == p.endNanos) {
+                sb.append(String.format("  %-22s %-22s %6d%n", p.name, p.thread, from));
+            } else {
+                sb.append(String.format("  %-22s %-22s %6d -> %6d %6d ms%n", p.name, p.thread, from, to,
+                        (p.endNanos - p.startNanos) / 1_000_000));
+            }
+        }
+        return sb.toString().stripTrailing();
+    }
+}
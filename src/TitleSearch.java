@@ -0,0 +1,128 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Type-ahead search over the titles of one song list. Every word of every title, normalized
+// (lower case, accents stripped: "Olafur" with an accented O is found as "olafur"), goes into a
+// sorted dictionary with the rows it occurs in. A query word matches the dictionary words it is
+// a prefix of, a contiguous range found by binary search, so a keystroke costs two binary
+// searches per query word plus the rows of the matched words; the titles themselves are never
+// scanned. A row matches when every query word matches one of its words. Immutable, so it's
+// built off the EDT.
+final class TitleSearch {
+
+    static final TitleSearch EMPTY = build(new String[0]);
+
+    private final String[] words;       // distinct, sorted
+    private final int[] postingStart;   // rows of words[i] are postings[postingStart[i] .. postingStart[i + 1])
+    private final int[] postings;       // ascending per word
+    private final int rows;
+
+    private TitleSearch(String[] words, int[] postingStart, int[] postings, int rows) {
+        this.words = words;
+        this.postingStart = postingStart;
+        this.postings = postings;
+        this.rows = rows;
+    }
+
+    static TitleSearch build(String[] titles) {
+        Map<String, IntList> byWord = new HashMap<>();
+        int total = 0;
+        for (int row = 0; row < titles.length; row++) {
+            for (String word : words(titles[row])) {
+                IntList list = byWord.computeIfAbsent(word, w -> new IntList());
+                if (list.size == 0 || list.items[list.size - 1] != row) { // a word twice in a title
+                    list.add(row);
+                    total++;
+                }
+            }
+        }
+        String[] words = byWord.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        int[] start = new int[words.length + 1];
+        int[] postings = new int[total];
+        int at = 0;
+        for (int i = 0; i < words.length; i++) {
+            IntList list = byWord.get(words[i]);
+            start[i] = at;
+            System.arraycopy(list.items, 0, postings, at, list.size);
+            at += list.size;
+        }
+        start[words.length] = at;
+        return new TitleSearch(words, start, postings, titles.length);
+    }
+
+    // rows matching every word of the query, ascending; null if the query has no words (all rows)
+    int[] find(String query) {
+        List<String> terms = words(query);
+        if (terms.isEmpty()) return null;
+        long[] match = null;
+        for (String term : terms) {
+            int from = lowerBound(term);
+            int to = lowerBound(term + Character.MAX_VALUE);
+            if (from == to) return new int[0];
+            long[] rowsOfTerm = new long[(rows + 63) >>> 6];
+            for (int p = postingStart[from]; p < postingStart[to]; p++) {
+                int row = postings[p];
+                rowsOfTerm[row >>> 6] |= 1L << row;
+            }
+            if (match == null) match = rowsOfTerm;
+            else for (int i = 0; i < match.length; i++) match[i] &= rowsOfTerm[i];
+        }
+        int count = 0;
+        for (long bits : match) count += Long.bitCount(bits);
+        int[] result = new int[count];
+        int n = 0;
+        for (int i = 0; i < match.length; i++) {
+            for (long bits = match[i]; bits != 0; bits &= bits - 1) {
+                result[n++] = (i << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return result;
+    }
+
+    // first dictionary index whose word is >= key
+    private int lowerBound(String key) {
+        int i = Arrays.binarySearch(words, key);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    // the normalized words (runs of letters and digits) of text
+    static List<String> words(String text) {
+        String s = normalize(text);
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= s.length(); i++) {
+            boolean inWord = i < s.length() && Character.isLetterOrDigit(s.charAt(i));
+            if (inWord && start < 0) start = i;
+            else if (!inWord && start >= 0) {
+                words.add(s.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    // lower case without accents; ASCII text (most titles) skips the Unicode decomposition
+    static String normalize(String text) {
+        boolean ascii = true;
+        for (int i = 0; i < text.length() && ascii; i++) ascii = text.charAt(i) < 0x80;
+        String s = ascii ? text : Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    // a growable int[], so postings aren't boxed while the index is built
+    static final class IntList {
+        int[] items = new int[4];
+        int size;
+
+        void add(int v) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = v;
+        }
+    }
+}
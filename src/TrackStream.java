@@ -0,0 +1,43 @@
+import javax.sound.sampled.AudioFormat;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+// PCM source the playback engine streams into a SourceDataLine: decoded MP3, or WAV read
+// straight from the file. Every track goes through the engine's DspChain this way.
+abstract class TrackStream implements Closeable {
+
+    final File file;
+    final AudioFormat format;
+    long startMicros;             // track position of the first sample this stream returns
+
+    TrackStream(File file, AudioFormat format) {
+        this.file = file;
+        this.format = format;
+    }
+
+    // stream for an MP3 or WAV file, by its extension
+    static TrackStream open(File file) throws Exception {
+        if (file.getName().toLowerCase().endsWith(".mp3")) return Mp3TrackStream.open(file);
+        return WavTrackStream.open(file);
+    }
+
+    abstract int read(byte[] b, int off, int len) throws IOException;
+
+    // a new stream over the same file whose first sample is at (or just before) micros
+    abstract TrackStream seekTo(long micros) throws Exception;
+
+    // duration in microseconds, -1 if unknown
+    abstract long durationMicros();
+
+    // get the first maxBytes ready so the first read after a track switch doesn't stall
+    void prefetch(int maxBytes) throws IOException {}
+
+    // two tracks can share one open line only if they produce the same PCM format
+    boolean canJoin(TrackStream next) {
+        return next != null && format.matches(next.format);
+    }
+
+    @Override
+    public abstract void close();
+}
@@ -0,0 +1,152 @@
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+// PCM straight out of a memory-mapped WAV file. Nothing is decoded up front and memory use
+// doesn't depend on the file's length (the pages belong to the OS file cache), so a long
+// 24-bit WAV starts as fast as a short one. A seek is a frame offset into the mapping.
+class WavTrackStream extends TrackStream {
+
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+    // mappings are split so files over 2 GB work
+    private static final long MAX_MAP_BYTES = 1L << 30;
+
+    private final MappedByteBuffer[] chunks;  // the data chunk, shared between seeked copies
+    private final long chunkBytes;            // whole frames per mapping, so no frame straddles two
+    private final long dataLength;
+    private long position;                    // bytes into the data chunk
+
+    private WavTrackStream(File file, AudioFormat format, MappedByteBuffer[] chunks, long dataLength, long position) {
+        super(file, format);
+        this.chunks = chunks;
+        this.chunkBytes = chunkBytes(format);
+        this.dataLength = dataLength;
+        this.position = position;
+        this.startMicros = frameToMicros(position / format.getFrameSize());
+    }
+
+    static WavTrackStream open(File file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = ch.size();
+            ByteBuffer head = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(ch, head, 0);
+            if (head.getInt(0) != 0x46464952 || head.getInt(8) != 0x45564157) { // "RIFF" ... "WAVE"
+                throw new IOException("Not a RIFF/WAVE file");
+            }
+
+            AudioFormat format = null;
+            long pos = 12;
+            ByteBuffer chunk = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+            while (pos + 8 <= size) {
+                chunk.clear().limit(8);
+                readFully(ch, chunk, pos);
+                int id = chunk.getInt(0);
+                long len = chunk.getInt(4) & 0xFFFFFFFFL;
+                long body = pos + 8;
+
+                if (id == 0x20746D66) { // "fmt "
+                    chunk.clear().limit((int) Math.min(40, len));
+                    readFully(ch, chunk, body);
+                    format = parseFormat(chunk, (int) Math.min(40, len));
+                } else if (id == 0x61746164) { // "data"
+                    if (format == null) throw new IOException("WAV data before fmt chunk");
+                    // 0 / 0xFFFFFFFF: written by a recorder that never went back to fill it in
+                    if (len == 0 || len == 0xFFFFFFFFL || body + len > size) len = size - body;
+                    len -= len % format.getFrameSize();
+                    return new WavTrackStream(file, format, map(ch, body, len, chunkBytes(format)), len, 0);
+                }
+                pos = body + len + (len & 1); // chunks are word aligned
+            }
+            throw new IOException("WAV file has no data chunk");
+        }
+    }
+
+    private static AudioFormat parseFormat(ByteBuffer fmt, int len) throws IOException {
+        if (len < 16) throw new IOException("Truncated WAV fmt chunk");
+        int tag = fmt.getShort(0) & 0xFFFF;
+        int channels = fmt.getShort(2) & 0xFFFF;
+        int rate = fmt.getInt(4);
+        int blockAlign = fmt.getShort(12) & 0xFFFF;
+        int bits = fmt.getShort(14) & 0xFFFF;
+        if (tag == WAVE_FORMAT_EXTENSIBLE && len >= 26) tag = fmt.getShort(24) & 0xFFFF; // sub format GUID
+        if (channels == 0 || blockAlign == 0 || bits == 0) throw new IOException("Bad WAV fmt chunk");
+
+        AudioFormat.Encoding encoding;
+        if (tag == WAVE_FORMAT_IEEE_FLOAT) encoding = AudioFormat.Encoding.PCM_FLOAT;
+        else if (tag == WAVE_FORMAT_PCM) encoding = bits <= 8 ? AudioFormat.Encoding.PCM_UNSIGNED : AudioFormat.Encoding.PCM_SIGNED;
+        else throw new IOException("Unsupported WAV encoding " + tag);
+        // samples are padded to whole bytes: 20-bit audio is stored in 24-bit containers
+        int sampleBits = blockAlign / channels * 8;
+        return new AudioFormat(encoding, rate, sampleBits, channels, blockAlign, rate, false);
+    }
+
+    private static long chunkBytes(AudioFormat format) {
+        return MAX_MAP_BYTES - MAX_MAP_BYTES % format.getFrameSize();
+    }
+
+    private static MappedByteBuffer[] map(FileChannel ch, long offset, long length, long chunkBytes) throws IOException {
+        int n = (int) Math.max(1, (length + chunkBytes - 1) / chunkBytes);
+        MappedByteBuffer[] chunks = new MappedByteBuffer[n];
+        for (int i = 0; i < n; i++) {
+            long start = i * chunkBytes;
+            chunks[i] = ch.map(FileChannel.MapMode.READ_ONLY, offset + start, Math.min(chunkBytes, length - start));
+        }
+        return chunks; // the mapping stays valid after the channel is closed
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, pos + buf.position()) < 0) throw new IOException("Unexpected end of WAV file");
+        }
+    }
+
+    @Override
+    int read(byte[] b, int off, int len) {
+        if (position >= dataLength) return -1;
+        int chunk = (int) (position / chunkBytes);
+        int inChunk = (int) (position % chunkBytes);
+        int n = (int) Math.min(len, Math.min(dataLength - position, chunkBytes - inChunk));
+        n -= n % format.getFrameSize(); // lines only take whole frames
+        if (n == 0) throw new IllegalArgumentException("Read buffer smaller than one frame");
+        chunks[chunk].get(inChunk, b, off, n); // absolute get: copies share the mapping safely
+        position += n;
+        return n;
+    }
+
+    @Override
+    WavTrackStream seekTo(long micros) {
+        long frame = (long) (Math.max(0, micros) * (double) format.getFrameRate() / 1_000_000.0);
+        long pos = Math.min(frame * format.getFrameSize(), dataLength);
+        return new WavTrackStream(file, format, chunks, dataLength, pos);
+    }
+
+    @Override
+    long durationMicros() {
+        return frameToMicros(dataLength / format.getFrameSize());
+    }
+
+    // touch the first pages so the first reads don't take page faults on the engine thread
+    @Override
+    void prefetch(int maxBytes) {
+        long end = Math.min(dataLength, position + maxBytes);
+        for (long p = position; p < end; p += 4096) {
+            chunks[(int) (p / chunkBytes)].get((int) (p % chunkBytes));
+        }
+    }
+
+    private long frameToMicros(long frames) {
+        return (long) (frames * 1_000_000.0 / format.getFrameRate());
+    }
+
+    @Override
+    public void close() {
+        // nothing to release: the channel is closed after mapping and the mapping is shared by seeks
+    }
+}
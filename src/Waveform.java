@@ -0,0 +1,120 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Peak and RMS summary of a whole track at several zoom levels, for drawing it in the progress
+// slider. Level 0 has up to FINEST_BUCKETS buckets, each further level halves the count down to
+// COARSEST_BUCKETS; a view picks the coarsest level that still has a bucket per pixel.
+// Values are stored as unsigned bytes of linear amplitude (255 = full scale), 2 bytes a bucket.
+class Waveform {
+
+    static final int FINEST_BUCKETS = 4096;
+    static final int COARSEST_BUCKETS = 128;
+
+    final long durationMicros;
+    final byte[][] peaks;   // [level][bucket]
+    final byte[][] rms;
+
+    Waveform(long durationMicros, byte[][] peaks, byte[][] rms) {
+        this.durationMicros = durationMicros;
+        this.peaks = peaks;
+        this.rms = rms;
+    }
+
+    // index of the level to draw width columns from
+    int levelFor(int width) {
+        int level = 0;
+        while (level + 1 < peaks.length && peaks[level + 1].length >= width) level++;
+        return level;
+    }
+
+    static int unsigned(byte b) {
+        return b & 0xFF;
+    }
+
+    // collects 10 ms blocks while a track is decoded, then merges them into the levels
+    static final class Builder {
+        private int channels;
+        private int blockFrames;
+        private float sampleRate;
+        private float[] blockPeak = new float[4096];
+        private double[] blockSquares = new double[4096];
+        private int blocks;
+        private float peak;
+        private double squares;
+        private int frames;
+        private long totalFrames;
+
+        // once the decoder knows the format
+        void start(int channels, float sampleRate) {
+            this.channels = channels;
+            this.sampleRate = sampleRate;
+            this.blockFrames = Math.max(1, Math.round(sampleRate / 100));
+        }
+
+        void add(float[] samples, int count) {
+            int i = 0;
+            for (int f = 0; f < count; f++) {
+                for (int c = 0; c < channels; c++, i++) {
+                    float v = samples[i];
+                    float a = Math.abs(v);
+                    if (a > peak) peak = a;
+                    squares += v * v;
+                }
+                if (++frames == blockFrames) endBlock();
+            }
+            totalFrames += count;
+        }
+
+        private void endBlock() {
+            if (blocks == blockPeak.length) {
+                blockPeak = Arrays.copyOf(blockPeak, blocks * 2);
+                blockSquares = Arrays.copyOf(blockSquares, blocks * 2);
+            }
+            blockPeak[blocks] = peak;
+            blockSquares[blocks] = squares / ((long) frames * channels);
+            blocks++;
+            peak = 0;
+            squares = 0;
+            frames = 0;
+        }
+
+        Waveform build() {
+            if (frames > 0) endBlock();
+            int n = Math.max(1, Math.min(FINEST_BUCKETS, blocks));
+            List<byte[]> peakLevels = new ArrayList<>(), rmsLevels = new ArrayList<>();
+            float[] p = new float[n];
+            double[] s = new double[n];
+            for (int b = 0; b < n; b++) {
+                int from = (int) ((long) b * blocks / n), to = (int) ((long) (b + 1) * blocks / n);
+                for (int k = from; k < to; k++) {
+                    p[b] = Math.max(p[b], blockPeak[k]);
+                    s[b] += blockSquares[k];
+                }
+                if (to > from) s[b] /= to - from;
+            }
+            while (true) {
+                byte[] pb = new byte[n], rb = new byte[n];
+                for (int b = 0; b < n; b++) {
+                    pb[b] = toByte(p[b]);
+                    rb[b] = toByte((float) Math.sqrt(s[b]));
+                }
+                peakLevels.add(pb);
+                rmsLevels.add(rb);
+                if (n / 2 < COARSEST_BUCKETS) break;
+                int half = n / 2;
+                for (int b = 0; b < half; b++) {
+                    p[b] = Math.max(p[2 * b], p[2 * b + 1]);
+                    s[b] = (s[2 * b] + s[2 * b + 1]) / 2;
+                }
+                n = half;
+            }
+            long duration = (long) (totalFrames * 1_000_000.0 / sampleRate);
+            return new Waveform(duration, peakLevels.toArray(new byte[0][]), rmsLevels.toArray(new byte[0][]));
+        }
+
+        private static byte toByte(float v) {
+            return (byte) Math.min(255, Math.round(v * 255));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Waveforms on disk, one small binary file per track in the cache folder (about 16 KB for
+// every level together), named after the track's path and stamped with its size and mtime so
+// a changed file is simply a miss. Recently shown ones are also kept in memory.
+class WaveformStore {
+
+    private static final int MAGIC = 0x4D4D5746; // "MMWF"
+    private static final int VERSION = 1;
+    private static final int MEMORY_ENTRIES = 64;
+
+    private final File dir;
+    private final Map<String, Waveform> recent = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Waveform> eldest) {
+            return size() > MEMORY_ENTRIES;
+        }
+    };
+
+    WaveformStore(File dir) {
+        this.dir = dir;
+    }
+
+    // the stored waveform, or null if the track hasn't been analyzed (or changed since)
+    Waveform load(File track) {
+        String key = cacheKey(track);
+        synchronized (recent) {
+            Waveform w = recent.get(key);
+            if (w != null) return w;
+        }
+        File file = sidecar(track);
+        if (!file.exists()) return null;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())));
+            if (!readHeader(in, track)) return null;
+            long duration = in.readLong();
+            int levels = in.readUnsignedByte();
+            byte[][] peaks = new byte[levels][], rms = new byte[levels][];
+            for (int l = 0; l < levels; l++) {
+                int n = in.readInt();
+                peaks[l] = new byte[n];
+                rms[l] = new byte[n];
+                in.readFully(peaks[l]);
+                in.readFully(rms[l]);
+            }
+            Waveform w = new Waveform(duration, peaks, rms);
+            synchronized (recent) {
+                recent.put(key, w);
+            }
+            return w;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    // true if an up-to-date waveform is stored; reads only the header
+    boolean has(File track) {
+        File file = sidecar(track);
+        if (!file.exists()) return false;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()))) {
+            return readHeader(in, track);
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    void save(File track, Waveform w) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + w.peaks[0].length * 4);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(track.length());
+            out.writeLong(track.lastModified());
+            out.writeLong(w.durationMicros);
+            out.writeByte(w.peaks.length);
+            for (int l = 0; l < w.peaks.length; l++) {
+                out.writeInt(w.peaks[l].length);
+                out.write(w.peaks[l]);
+                out.write(w.rms[l]);
+            }
+            out.flush();
+            Files.createDirectories(dir.toPath());
+            File file = sidecar(track);
+            File tmp = new File(dir, file.getName() + ".tmp");
+            Files.write(tmp.toPath(), bytes.toByteArray());
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            synchronized (recent) {
+                recent.put(cacheKey(track), w);
+            }
+        } catch (IOException ex) {
+            System.out.println("Cannot save waveform of " + track.getName() + ": " + ex.getMessage());
+        }
+    }
+
+    private static boolean readHeader(DataInputStream in, File track) throws IOException {
+        return in.readInt() == MAGIC && in.readInt() == VERSION
+                && in.readLong() == track.length() && in.readLong() == track.lastModified();
+    }
+
+    private File sidecar(File track) {
+        String path = track.getAbsolutePath();
+        return new File(dir, UUID.nameUUIDFromBytes(path.getBytes(StandardCharsets.UTF_8)) + ".wfm");
+    }
+
+    private static String cacheKey(File file) {
+        return file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified();
+    }
+}